@@ -1,11 +1,24 @@
 package inge2.dataflow;
 
+import inge2.dataflow.pointstoanalysis.CfgKind;
+import inge2.dataflow.pointstoanalysis.DemandDrivenPointsTo;
+import inge2.dataflow.pointstoanalysis.GraphStorage;
+import inge2.dataflow.pointstoanalysis.IncrementalPointsToAnalysis;
+import inge2.dataflow.pointstoanalysis.ParallelPointsToAnalysis;
 import inge2.dataflow.pointstoanalysis.PointsToAnalysis;
+import inge2.dataflow.pointstoanalysis.PointsToConfig;
+import inge2.dataflow.pointstoanalysis.PointsToQueries;
 import org.slf4j.Logger;
 import soot.*;
-import soot.toolkits.graph.ExceptionalUnitGraph;
+import soot.toolkits.graph.UnitGraph;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -13,13 +26,37 @@ import static org.slf4j.LoggerFactory.getLogger;
  * Launcher class for the points-to analysis.
  */
 public class Launcher {
+
+    private static final Logger logger = getLogger(Launcher.class);
+
     public static final String POINTS_TO_SOOT_PHASE_NAME = "jtp.PointsToAnalysis";
 
-    private static PointsToAnalysis lastPointsToAnalysis;
+    /**
+     * Options for the Jimple body builder: keep the original variable names and line numbers used by the analysis.
+     */
+    public static final String[] JIMPLE_BODY_OPTIONS = {
+            "-p", "jb", "use-original-names:true",
+            "-p", "jb.ls", "off",
+            "-p", "jb.sils", "off",
+            "-p", "jb.ule", "off",
+            "-p", "jb.cp", "off",
+            "-keep-line-number",
+    };
+
+    /**
+     * Results of the last Soot run, by method signature. Soot runs the body packs of different classes in parallel
+     * (see its "-num-threads" option), so the transform may be writing results from several threads.
+     */
+    private static final Map<String, PointsToQueries> pointsToResults = new ConcurrentHashMap<>();
+
+    private static volatile PointsToAnalysis lastPointsToAnalysis;
+
+    private static volatile PointsToQueries lastPointsToQueries;
 
     public static void main(String[] args) {
         // Reset soot in case we are calling it multiple times.
         soot.G.reset();
+        pointsToResults.clear();
         setupPointsToAnalysis();
         // Run Soot.
         soot.Main.main(args);
@@ -29,26 +66,27 @@ public class Launcher {
      * Runs the division by zero analysis on a given target class.
      * The Soot class path is read from the system property "sootClassPath".
      * @param targetClass the target class to analyze.
+     * @param phaseOptions extra options for the points-to phase, e.g. "heap-abstraction:type".
+     *                     See {@link PointsToConfig#fromPhaseOptions(Map)}.
      */
-    public static void analyzeClass(String targetClass) {
+    public static void analyzeClass(String targetClass, String... phaseOptions) {
         String sootClassPath = System.getProperty("sootClassPath");
 
-        String[] sootArgs = {
+        List<String> pointsToOptions = new ArrayList<>();
+        pointsToOptions.add("on");
+        pointsToOptions.addAll(Arrays.asList(phaseOptions));
+
+        List<String> sootArgs = new ArrayList<>(Arrays.asList(
                 targetClass,
                 "-cp", sootClassPath,
                 "-f", "J",
                 "-v",
                 "-print-tags",
-                "-p", POINTS_TO_SOOT_PHASE_NAME, "on",
-                "-p", "jb", "use-original-names:true",
-                "-p", "jb.ls", "off",
-                "-p", "jb.sils", "off",
-                "-p", "jb.ule", "off",
-                "-p", "jb.cp", "off",
-                "-keep-line-number",
-        };
-
-        Launcher.main(sootArgs);
+                "-p", POINTS_TO_SOOT_PHASE_NAME, String.join(",", pointsToOptions)
+        ));
+        sootArgs.addAll(Arrays.asList(JIMPLE_BODY_OPTIONS));
+
+        Launcher.main(sootArgs.toArray(new String[0]));
     }
 
     public static void setupPointsToAnalysis() {
@@ -56,10 +94,15 @@ public class Launcher {
 
         // Add the analysis to the Jimple Transform Pack. This will make it run after the Jimple generation when Soot executes.
         // This analysis will be run on each method body.
-        jtpPack.add(new Transform(POINTS_TO_SOOT_PHASE_NAME, new BodyTransformer() {
+        Transform pointsToTransform = new Transform(POINTS_TO_SOOT_PHASE_NAME, new BodyTransformer() {
 
             /**
-             * This method is called for each method body in the program.
+             * The options are the same for every body of a run, so they are parsed only once.
+             */
+            private final Map<Map<String, String>, PointsToConfig> configs = new ConcurrentHashMap<>();
+
+            /**
+             * This method is called for each method body in the program, possibly from several threads at once.
              *
              * @param body the body on which to apply the transformation
              * @param phaseName the phasename for this transform; not typically used by implementations.
@@ -67,23 +110,124 @@ public class Launcher {
              */
             @Override
             protected void internalTransform(Body body, String phaseName, Map<String, String> options) {
-                if (!"entryPoint".equals(body.getMethod().getName())) {
-                    // Ignore all methods that are not called "entryPoint".
+                PointsToConfig config = configs.computeIfAbsent(new HashMap<>(options), PointsToConfig::fromPhaseOptions);
+                if (!config.isAnalyzed(body.getMethod())) {
+                    // Ignore all methods that do not match the "methods" option ("entryPoint" by default).
                     return;
                 }
 
                 // Run the PointsToAnalysis on the body.
-                // We use the ExceptionalUnitGraph to build a control flow graph that takes exceptions into account.
-                lastPointsToAnalysis = new PointsToAnalysis(new ExceptionalUnitGraph(body));
+                PointsToQueries pointsToQueries = analyzeBody(body, config);
+                pointsToResults.put(body.getMethod().getSignature(), pointsToQueries);
+                lastPointsToQueries = pointsToQueries;
+                if (pointsToQueries instanceof PointsToAnalysis) {
+                    lastPointsToAnalysis = (PointsToAnalysis) pointsToQueries;
+                }
+            }
+        });
+        // Declare the options of the analysis so they can be given with "-p jtp.PointsToAnalysis <option>:<value>".
+        pointsToTransform.setDeclaredOptions(PointsToConfig.DECLARED_PHASE_OPTIONS);
+        pointsToTransform.setDefaultOptions(PointsToConfig.DEFAULT_PHASE_OPTIONS);
+        jtpPack.add(pointsToTransform);
+    }
+
+    /**
+     * Runs the points-to analysis selected by <code>config</code> on a method body.
+     * @param body the body to analyze.
+     * @param config the options of the analysis.
+     * @return a {@link PointsToAnalysis}, a {@link DemandDrivenPointsTo}, an {@link IncrementalPointsToAnalysis} or a
+     * {@link ParallelPointsToAnalysis}.
+     */
+    public static PointsToQueries analyzeBody(Body body, PointsToConfig config) {
+        return analyzeGraph(buildCfg(body, config), config);
+    }
+
+    /**
+     * Builds the control flow graph of a body with the kind of the configuration.
+     * The throw analysis reads the Scene, so it must not run while another thread loads classes.
+     * @param body the body.
+     * @param config the configuration of the analysis.
+     * @return the control flow graph.
+     */
+    public static UnitGraph buildCfg(Body body, PointsToConfig config) {
+        // By default we use the ExceptionalUnitGraph to build a control flow graph that takes exceptions into account.
+        long start = System.nanoTime();
+        UnitGraph unitGraph = config.getCfg().build(body);
+        logger.info("{} CFG of {}: {} units, {} edges, built in {} ms", config.getCfg(), body.getMethod().getSignature(),
+                body.getUnits().size(), CfgKind.countEdges(unitGraph), (System.nanoTime() - start) / 1e6);
+        return unitGraph;
+    }
+
+    /**
+     * Runs the analysis of the configuration over a control flow graph built by {@link #buildCfg}.
+     * @param unitGraph the control flow graph.
+     * @param config the configuration of the analysis.
+     * @return the points-to queries of the method.
+     */
+    public static PointsToQueries analyzeGraph(UnitGraph unitGraph, PointsToConfig config) {
+        Body body = unitGraph.getBody();
+        if (config.isDemandDriven()) {
+            // Queries are answered lazily, no fixpoint is computed here.
+            return new DemandDrivenPointsTo(unitGraph, config);
+        } else if (config.isIncremental()) {
+            // Keeps the graph of every unit, so the body can be edited and re-analysed with update().
+            return new IncrementalPointsToAnalysis(unitGraph, config);
+        } else if (config.isParallel()) {
+            // Solves the independent regions of the graph on the common fork-join pool.
+            ParallelPointsToAnalysis analysis = new ParallelPointsToAnalysis(unitGraph, config);
+            logger.info("Parallel points-to fixpoint of {}: {} regions, {} flow-throughs, {} strong updates",
+                    body.getMethod().getSignature(), analysis.getRegionCount(), analysis.getFlowThroughCount(),
+                    analysis.getStrongUpdateCount());
+            if (config.getStorage() == GraphStorage.OFF_HEAP) {
+                // Only the graph at the end of the method is queried, the rest go back to the off-heap pool.
+                analysis.freeFlows();
             }
-        }));
+            return analysis;
+        }
+        PointsToAnalysis analysis = new PointsToAnalysis(unitGraph, config);
+        logger.info("Points-to fixpoint of {}: {} flow-throughs, {} merges, {} strong updates", body.getMethod().getSignature(),
+                analysis.getFlowThroughCount(), analysis.getMergeCount(), analysis.getStrongUpdateCount());
+        if (config.getStorage() == GraphStorage.OFF_HEAP) {
+            // Only the graph at the end of the method is queried, the rest go back to the off-heap pool.
+            analysis.freeFlows();
+        }
+        return analysis;
+    }
+
+    /**
+     * Returns the results of the last Soot run.
+     * @return the points-to queries of every analysed method, by method signature.
+     */
+    public static Map<String, PointsToQueries> getPointsToResults() {
+        return Collections.unmodifiableMap(pointsToResults);
+    }
+
+    /**
+     * Returns the result of a method analysed in the last Soot run.
+     * @param methodSignature the Soot signature of the method, e.g. "&lt;a.B: void entryPoint()&gt;".
+     * @return the points-to queries of the method, or null.
+     */
+    public static PointsToQueries getPointsToQueries(String methodSignature) {
+        return pointsToResults.get(methodSignature);
     }
 
     /**
      * Returns the last points-to analysis that was run.
+     * When several methods are analysed, which one is the last depends on the scheduling of Soot's threads; use
+     * {@link #getPointsToQueries(String)} instead.
      * @return a points-to analysis, or null.
      */
     public static PointsToAnalysis getLastPointsToAnalysis() {
         return lastPointsToAnalysis;
     }
+
+    /**
+     * Returns the queries of the last analysed method: a {@link PointsToAnalysis} or, with the "demand-driven",
+     * "incremental" or "parallel" options, a {@link DemandDrivenPointsTo}, an {@link IncrementalPointsToAnalysis} or a
+     * {@link ParallelPointsToAnalysis}.
+     * @return the points-to queries, or null.
+     */
+    public static PointsToQueries getLastPointsToQueries() {
+        return lastPointsToQueries;
+    }
 }
@@ -0,0 +1,97 @@
+package inge2.dataflow.pointstoanalysis;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of a {@link PointsToGraph} for answering many alias queries.
+ *
+ * The nodes are numbered and the nodes of each variable, and the targets of each (node, field) pair, are kept as
+ * bitsets. A may-alias query is then a bitset intersection instead of a comparison of node sets. The index is a
+ * snapshot: it does not see later changes to the graph. It can be queried from several threads.
+ */
+public class AliasIndex {
+
+    private final Map<Node, Integer> ids = new HashMap<>();
+    private final List<Node> nodesById = new ArrayList<>();
+
+    private final Map<String, BitSet> variableNodes = new HashMap<>();
+
+    /**
+     * Destinos de los ejes de cada campo, por nodo de origen.
+     */
+    private final Map<String, Map<Integer, BitSet>> fieldTargets = new HashMap<>();
+
+    /**
+     * Nodos alcanzables desde una variable por un campo, calculados a demanda. La clave es "variable.campo".
+     */
+    private final Map<String, BitSet> variableFieldTargets = new ConcurrentHashMap<>();
+
+    private static final BitSet EMPTY = new BitSet();
+
+    public AliasIndex(PointsToGraph graph) {
+        for (Map.Entry<String, Set<Node>> variable : graph.mapping.entrySet()) {
+            BitSet bits = new BitSet();
+            if (variable.getValue() != null) {
+                for (Node node : variable.getValue()) {
+                    bits.set(getOrCreateId(node));
+                }
+            }
+            variableNodes.put(variable.getKey(), bits);
+        }
+        for (Axis axis : graph.axis) {
+            fieldTargets.computeIfAbsent(axis.fieldName, field -> new HashMap<>())
+                    .computeIfAbsent(getOrCreateId(axis.leftNode), node -> new BitSet())
+                    .set(getOrCreateId(axis.rightNode));
+        }
+    }
+
+    /**
+     * Returns the nodes the variable may point to; an empty set if the variable is not in the graph.
+     */
+    public Set<Node> getNodesForVariable(String variableName) {
+        return toNodes(variableNodes.getOrDefault(variableName, EMPTY));
+    }
+
+    public boolean mayAlias(String leftVariableName, String rightVariableName) {
+        return variableNodes.getOrDefault(leftVariableName, EMPTY)
+                .intersects(variableNodes.getOrDefault(rightVariableName, EMPTY));
+    }
+
+    public boolean mayAlias(String leftVariableName, String fieldName, String rightVariableName) {
+        return getFieldTargets(leftVariableName, fieldName)
+                .intersects(variableNodes.getOrDefault(rightVariableName, EMPTY));
+    }
+
+    private BitSet getFieldTargets(String variableName, String fieldName) {
+        return variableFieldTargets.computeIfAbsent(variableName + "." + fieldName, key -> {
+            BitSet targets = new BitSet();
+            Map<Integer, BitSet> edges = fieldTargets.get(fieldName);
+            BitSet nodes = variableNodes.get(variableName);
+            if (edges != null && nodes != null) {
+                for (int node = nodes.nextSetBit(0); node >= 0; node = nodes.nextSetBit(node + 1)) {
+                    targets.or(edges.getOrDefault(node, EMPTY));
+                }
+            }
+            return targets;
+        });
+    }
+
+    private int getOrCreateId(Node node) {
+        Integer id = ids.get(node);
+        if (id == null) {
+            id = nodesById.size();
+            ids.put(node, id);
+            nodesById.add(node);
+        }
+        return id;
+    }
+
+    private Set<Node> toNodes(BitSet bits) {
+        Set<Node> nodes = new HashSet<>();
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            nodes.add(nodesById.get(i));
+        }
+        return nodes;
+    }
+}
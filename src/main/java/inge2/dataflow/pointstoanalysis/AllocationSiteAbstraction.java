@@ -0,0 +1,18 @@
+package inge2.dataflow.pointstoanalysis;
+
+import soot.jimple.AnyNewExpr;
+import soot.jimple.AssignStmt;
+import soot.tagkit.LineNumberTag;
+
+/**
+ * One node per allocation site. The node is named after the source line of the <code>new</code>.
+ */
+public class AllocationSiteAbstraction implements HeapAbstraction {
+
+    @Override
+    public Node getNode(AssignStmt stmt) {
+        LineNumberTag lineNumberTag = (LineNumberTag) stmt.getTag("LineNumberTag");
+        AnyNewExpr newExpr = (AnyNewExpr) stmt.getRightOp();
+        return new Node(String.valueOf(lineNumberTag.getLineNumber()), newExpr.getType());
+    }
+}
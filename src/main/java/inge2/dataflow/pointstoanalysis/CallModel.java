@@ -0,0 +1,35 @@
+package inge2.dataflow.pointstoanalysis;
+
+/**
+ * How the analysis models the calls of the method. The called methods are never analysed.
+ */
+public enum CallModel {
+
+    /**
+     * The result of a call is a fresh node of its call site ({@link HeapAbstraction#getCallNode}) and the call has
+     * no other effect. Unsound by design: it misses that <code>x = id(y)</code> may alias x and y, and that a callee
+     * may store into its arguments or into static fields. It is the model the expected results of the targets use.
+     */
+    FRESH,
+
+    /**
+     * The callee may return, and store into any field of, any object reachable from the receiver, the arguments or
+     * the static fields used by the method, plus the objects it creates (the node of the call site). Calls to
+     * <code>Object.&lt;init&gt;</code> have no effect. Sound for the fields the method uses, but imprecise.
+     * The node of the call site summarizes the escaped objects and aliases all of them, so a call adds a number of
+     * edges linear in the escaped objects instead of one per pair.
+     */
+    CONSERVATIVE;
+
+    /**
+     * Parses the value of the "calls" option: fresh or conservative.
+     */
+    public static CallModel fromOption(String value) {
+        for (CallModel model : values()) {
+            if (model.name().equalsIgnoreCase(value)) {
+                return model;
+            }
+        }
+        throw new IllegalArgumentException("Unknown calls: " + value);
+    }
+}
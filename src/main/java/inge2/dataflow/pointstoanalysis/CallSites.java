@@ -0,0 +1,79 @@
+package inge2.dataflow.pointstoanalysis;
+
+import soot.SootField;
+import soot.Unit;
+import soot.jimple.FieldRef;
+import soot.jimple.Stmt;
+import soot.toolkits.graph.UnitGraph;
+
+import java.util.*;
+
+/**
+ * The calls of a method body: the position of each one, which distinguishes the nodes of calls on the same line,
+ * and the fields a callee may write under {@link CallModel#CONSERVATIVE}.
+ */
+public class CallSites {
+
+    private final Map<Unit, Integer> indexes = new HashMap<>();
+
+    /**
+     * Campos de instancia de tipo referencia usados por el metodo, mas {@link PointsToGraph#ARRAY_FIELD}.
+     */
+    private final Set<String> fieldNames = new TreeSet<>();
+
+    /**
+     * Campos estaticos de tipo referencia usados por el metodo.
+     */
+    private final Set<SootField> staticFields = new LinkedHashSet<>();
+
+    /**
+     * @param graph the control flow graph of the method.
+     */
+    public CallSites(UnitGraph graph) {
+        int index = 0;
+        for (Unit unit : graph.getBody().getUnits()) {
+            Stmt stmt = (Stmt) unit;
+            if (stmt.containsInvokeExpr()) {
+                indexes.put(unit, index);
+            }
+            if (stmt.containsFieldRef() && PointsToVisitor.isReference(stmt.getFieldRef())) {
+                FieldRef fieldRef = stmt.getFieldRef();
+                if (fieldRef.getFieldRef().isStatic()) {
+                    staticFields.add(fieldRef.getField());
+                } else {
+                    fieldNames.add(fieldRef.getFieldRef().name());
+                }
+            }
+            index++;
+        }
+        fieldNames.add(PointsToGraph.ARRAY_FIELD);
+    }
+
+    /**
+     * Returns the position of the call in the body, or -1 if the unit is not a call.
+     */
+    public int getIndex(Unit unit) {
+        return indexes.getOrDefault(unit, -1);
+    }
+
+    /**
+     * Returns true if a call of this body is at another position in the body of <code>other</code>.
+     */
+    public boolean hasMovedCalls(CallSites other) {
+        for (Map.Entry<Unit, Integer> call : indexes.entrySet()) {
+            int index = other.getIndex(call.getKey());
+            if (index >= 0 && index != call.getValue()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Set<String> getFieldNames() {
+        return Collections.unmodifiableSet(fieldNames);
+    }
+
+    public Set<SootField> getStaticFields() {
+        return Collections.unmodifiableSet(staticFields);
+    }
+}
@@ -0,0 +1,66 @@
+package inge2.dataflow.pointstoanalysis;
+
+import soot.Body;
+import soot.Unit;
+import soot.toolkits.graph.BriefUnitGraph;
+import soot.toolkits.graph.ExceptionalUnitGraph;
+import soot.toolkits.graph.UnitGraph;
+
+/**
+ * Control flow graphs the analysis can run on.
+ */
+public enum CfgKind {
+
+    /**
+     * {@link ExceptionalUnitGraph}: runs the throw analysis and adds an edge from every unit that may throw to the
+     * handlers that may catch it.
+     */
+    EXCEPTIONAL,
+
+    /**
+     * {@link BriefUnitGraph}: no exceptional edges at all. Handlers have no predecessors, so they are analysed as
+     * if they were entry points of the method.
+     */
+    BRIEF,
+
+    /**
+     * {@link PrunedExceptionalUnitGraph}: the exceptional graph without the edges into handlers that cannot
+     * observe the points-to state. It is built from the exceptional graph, so it does not reduce the build time,
+     * only the work of the fixpoint.
+     */
+    PRUNED;
+
+    public UnitGraph build(Body body) {
+        switch (this) {
+            case BRIEF:
+                return new BriefUnitGraph(body);
+            case PRUNED:
+                return new PrunedExceptionalUnitGraph(body);
+            default:
+                return new ExceptionalUnitGraph(body);
+        }
+    }
+
+    /**
+     * Returns the number of edges of a control flow graph.
+     */
+    public static int countEdges(UnitGraph graph) {
+        int edges = 0;
+        for (Unit unit : graph) {
+            edges += graph.getSuccsOf(unit).size();
+        }
+        return edges;
+    }
+
+    /**
+     * Parses the value of the "cfg" option: exceptional, brief or pruned.
+     */
+    public static CfgKind fromOption(String value) {
+        for (CfgKind kind : values()) {
+            if (kind.name().equalsIgnoreCase(value)) {
+                return kind;
+            }
+        }
+        throw new IllegalArgumentException("Unknown cfg: " + value);
+    }
+}
@@ -0,0 +1,414 @@
+package inge2.dataflow.pointstoanalysis;
+
+import soot.Local;
+import soot.SootField;
+import soot.Type;
+import soot.Unit;
+import soot.Value;
+import soot.jimple.*;
+import soot.jimple.internal.JInstanceFieldRef;
+import soot.toolkits.graph.UnitGraph;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Demand-driven version of {@link PointsToAnalysis}.
+ *
+ * Instead of computing the graph of every unit of the method, a query walks backwards from the queried variable
+ * through the definitions that reach it (the statements that {@link PointsToVisitor} models) and, for loads,
+ * through the stores of the loaded field (or of the array elements) that reach the load. A static field is a
+ * variable named after its signature, and each of its stores is a definition that keeps the previous value. Only the statements that can affect the query are visited.
+ *
+ * The answers are the same ones that {@link PointsToAnalysis} computes: the value of a variable before a unit is
+ * the union of the values of its reaching definitions, and the edges before a unit are the ones added by every
+ * store that can reach it. Results are memoized and reused by later queries. Cyclic dependencies (loops) are
+ * solved by re-evaluating the query until no memoized value changes.
+ */
+public class DemandDrivenPointsTo implements PointsToQueries {
+
+    private final UnitGraph graph;
+    private final PointsToConfig config;
+    private final StrongUpdates strongUpdates;
+    private final CallSites callSites;
+
+    /**
+     * Nodos a los que apunta una variable antes de una unidad (o al final del metodo si la unidad es null).
+     */
+    private final Map<Query, Set<Node>> pointsToBefore = new HashMap<>();
+
+    /**
+     * Queries whose value in {@link #pointsToBefore} is final.
+     */
+    private final Set<Query> solved = new HashSet<>();
+
+    private final Map<Query, Set<Unit>> reachingDefinitions = new HashMap<>();
+    private final Map<Query, Set<Unit>> reachingStores = new HashMap<>();
+
+    private final Set<Query> evaluatedInRound = new HashSet<>();
+    private final Set<Query> inProgress = new HashSet<>();
+    private boolean roundHitCycle;
+    private boolean roundChanged;
+
+    public DemandDrivenPointsTo(UnitGraph graph) {
+        this(graph, new PointsToConfig());
+    }
+
+    /**
+     * @throws IllegalArgumentException with {@link CallModel#CONSERVATIVE}: the effects of a call on the heap have
+     * no store to walk back to.
+     */
+    public DemandDrivenPointsTo(UnitGraph graph, PointsToConfig config) {
+        if (config.getCalls() == CallModel.CONSERVATIVE) {
+            throw new IllegalArgumentException("Demand-driven queries only support calls:fresh");
+        }
+        this.graph = graph;
+        this.config = config;
+        this.strongUpdates = config.isStrongUpdates() ? new StrongUpdates(graph, config.getHeapAbstraction()) : null;
+        this.callSites = new CallSites(graph);
+    }
+
+    /**
+     * Devuelve el conjunto de nodos a los que puede apuntar la variable al final del metodo.
+     * A diferencia de {@link PointsToAnalysis}, devuelve un conjunto vacio si la variable nunca fue asignada.
+     */
+    @Override
+    public Set<Node> getNodesForVariable(String variableName) {
+        return getNodesForVariable(variableName, null);
+    }
+
+    /**
+     * Devuelve el conjunto de nodos a los que puede apuntar la variable justo antes de <code>unit</code>.
+     * @param variableName
+     * @param unit the unit, or null for the end of the method.
+     * @return
+     */
+    public Set<Node> getNodesForVariable(String variableName, Unit unit) {
+        return solve(() -> pointsTo(variableName, unit));
+    }
+
+    /**
+     * Devuelve el conjunto de nodos alcanzables desde el nodo <code>node</code> por el campo <code>fieldName</code>
+     * al final del metodo.
+     */
+    public Set<Node> getReachableNodesByField(Node node, String fieldName) {
+        return solve(() -> heapBefore(node, fieldName, null));
+    }
+
+    @Override
+    public boolean mayAlias(String leftVariableName, String rightVariableName) {
+        Set<Node> nX = getNodesForVariable(leftVariableName);
+        Set<Node> nY = getNodesForVariable(rightVariableName);
+        return !Collections.disjoint(nX, nY);
+    }
+
+    @Override
+    public boolean mayAlias(String leftVariableName, String fieldName, String rightVariableName) {
+        Set<Node> n = new HashSet<>();
+        for (Node node : getNodesForVariable(leftVariableName)) {
+            n.addAll(getReachableNodesByField(node, fieldName));
+        }
+        return !Collections.disjoint(n, getNodesForVariable(rightVariableName));
+    }
+
+    /**
+     * Returns how many (variable, unit) points-to sets are memoized.
+     */
+    public int getSolvedQueryCount() {
+        return solved.size();
+    }
+
+    /**
+     * Evaluates a query until none of the memoized values it depends on changes, and marks them as solved.
+     */
+    private <T> T solve(Supplier<T> query) {
+        T result;
+        do {
+            evaluatedInRound.clear();
+            roundHitCycle = false;
+            roundChanged = false;
+            result = query.get();
+        } while (roundHitCycle && roundChanged);
+        solved.addAll(evaluatedInRound);
+        evaluatedInRound.clear();
+        return result;
+    }
+
+    private Set<Node> pointsTo(String variableName, Unit unit) {
+        Query query = new Query(variableName, unit);
+        if (solved.contains(query)) {
+            return pointsToBefore.get(query);
+        }
+        if (inProgress.contains(query)) {
+            roundHitCycle = true;
+            return pointsToBefore.getOrDefault(query, Collections.emptySet());
+        }
+        if (!evaluatedInRound.add(query)) {
+            return pointsToBefore.getOrDefault(query, Collections.emptySet());
+        }
+
+        inProgress.add(query);
+        Set<Node> result = new HashSet<>();
+        for (Unit definition : getReachingDefinitions(query)) {
+            result.addAll(evaluateDefinition((AssignStmt) definition));
+        }
+        inProgress.remove(query);
+
+        Set<Node> previous = pointsToBefore.get(query);
+        if (previous != null) {
+            result.addAll(previous);
+        }
+        if (previous == null ? !result.isEmpty() : previous.size() != result.size()) {
+            roundChanged = true;
+        }
+        pointsToBefore.put(query, result);
+        return result;
+    }
+
+    /**
+     * Value assigned to the left variable by a definition, computed from the state right before it.
+     */
+    private Set<Node> evaluateDefinition(AssignStmt stmt) {
+        Value left = stmt.getLeftOp();
+        Value right = stmt.getRightOp();
+        Set<Node> result = new HashSet<>();
+        if (right instanceof AnyNewExpr) { // x = new A()
+            result.add(config.getHeapAbstraction().getNode(stmt));
+        } else if (right instanceof NullConstant && left instanceof Local) { // x = null
+            return result;
+        } else if (left instanceof StaticFieldRef) { // A.f = y
+            result.addAll(pointsTo(getDefinedVariable(stmt), stmt));
+            result.addAll(valuePointsTo(right, stmt));
+        } else if (right instanceof InvokeExpr) { // x = y.m()
+            result.add(config.getHeapAbstraction().getCallNode(stmt, callSites.getIndex(stmt)));
+        } else if (right instanceof Local) { // x = y
+            result.addAll(pointsTo(right.toString(), stmt));
+            return filterByType(result, left.getType());
+        } else if (right instanceof CastExpr) { // x = (A) y
+            result.addAll(valuePointsTo(((CastExpr) right).getOp(), stmt));
+            return filterByType(result, ((CastExpr) right).getCastType());
+        } else if (right instanceof StaticFieldRef) { // x = A.f
+            SootField field = ((StaticFieldRef) right).getField();
+            result.addAll(pointsTo(field.getSignature(), stmt));
+            result.add(config.getHeapAbstraction().getStaticNode(field));
+            return filterByType(result, left.getType());
+        } else { // x = y.f, x = y[i]
+            for (Node node : pointsTo(getLoadBase(right).toString(), stmt)) {
+                result.addAll(heapBefore(node, getLoadedField(right), stmt));
+            }
+            return filterByType(result, left.getType());
+        }
+        return result;
+    }
+
+    /**
+     * Nodes reachable from <code>node</code> by <code>fieldName</code> right before <code>unit</code>: the right
+     * side of every store <code>x.fieldName = y</code> that can reach the unit with <code>node</code> in x.
+     */
+    private Set<Node> heapBefore(Node node, String fieldName, Unit unit) {
+        if (strongUpdates != null) {
+            return heapBeforeWithStrongUpdates(node, fieldName, unit);
+        }
+        Set<Node> result = new HashSet<>();
+        for (Unit store : getReachingStores(new Query(fieldName, unit))) {
+            AssignStmt stmt = (AssignStmt) store;
+            if (pointsTo(getStoreBase(stmt).toString(), stmt).contains(node)) {
+                result.addAll(valuePointsTo(stmt.getRightOp(), stmt));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Same as {@link #heapBefore}, but a store that strongly updates <code>node</code> hides the older stores on
+     * the paths that go through it. Which stores are strong depends on the node, so the walk is not memoized.
+     *
+     * While a loop is being solved, a base can point to fewer nodes than in the final answer and look like a strong
+     * update; the sets only grow between rounds, so the answer stays sound, but it can be less precise than the
+     * one of {@link PointsToAnalysis}.
+     */
+    private Set<Node> heapBeforeWithStrongUpdates(Node node, String fieldName, Unit unit) {
+        Set<Node> result = new HashSet<>();
+        Set<Unit> visited = new HashSet<>();
+        Deque<Unit> worklist = new ArrayDeque<>(getStartUnits(unit));
+        while (!worklist.isEmpty()) {
+            Unit current = worklist.pop();
+            if (!visited.add(current)) {
+                continue;
+            }
+            if (fieldName.equals(getStoredField(current))) {
+                AssignStmt stmt = (AssignStmt) current;
+                String base = getStoreBase(stmt).toString();
+                Set<Node> baseNodes = pointsTo(base, stmt);
+                if (baseNodes.contains(node)) {
+                    result.addAll(valuePointsTo(stmt.getRightOp(), stmt));
+                    if (!PointsToGraph.ARRAY_FIELD.equals(fieldName) && strongUpdates.isStrong(base, baseNodes)) {
+                        continue;
+                    }
+                }
+            }
+            worklist.addAll(graph.getPredsOf(current));
+        }
+        return result;
+    }
+
+    /**
+     * Nodes an operand points to right before <code>unit</code>: a local or the constant null.
+     */
+    private Set<Node> valuePointsTo(Value value, Unit unit) {
+        return value instanceof NullConstant ? Collections.emptySet() : pointsTo(value.toString(), unit);
+    }
+
+    private Set<Node> filterByType(Set<Node> nodes, Type declaredType) {
+        if (!config.isTypeFilter()) {
+            return nodes;
+        }
+        Set<Node> compatibleNodes = new HashSet<>();
+        for (Node node : nodes) {
+            if (config.getHeapAbstraction().mayHaveType(node, declaredType)) {
+                compatibleNodes.add(node);
+            }
+        }
+        return compatibleNodes;
+    }
+
+    /**
+     * Definitions of the query variable that reach the query unit: walks the predecessors backwards and stops at
+     * the first definition found on each path.
+     */
+    private Set<Unit> getReachingDefinitions(Query query) {
+        Set<Unit> definitions = reachingDefinitions.get(query);
+        if (definitions != null) {
+            return definitions;
+        }
+        definitions = new HashSet<>();
+        Set<Unit> visited = new HashSet<>();
+        Deque<Unit> worklist = new ArrayDeque<>(getStartUnits(query.unit));
+        while (!worklist.isEmpty()) {
+            Unit unit = worklist.pop();
+            if (!visited.add(unit)) {
+                continue;
+            }
+            if (query.name.equals(getDefinedVariable(unit))) {
+                definitions.add(unit);
+            } else {
+                worklist.addAll(graph.getPredsOf(unit));
+            }
+        }
+        reachingDefinitions.put(query, definitions);
+        return definitions;
+    }
+
+    /**
+     * Stores of the query field that can be executed before the query unit.
+     */
+    private Set<Unit> getReachingStores(Query query) {
+        Set<Unit> stores = reachingStores.get(query);
+        if (stores != null) {
+            return stores;
+        }
+        stores = new HashSet<>();
+        Set<Unit> visited = new HashSet<>();
+        Deque<Unit> worklist = new ArrayDeque<>(getStartUnits(query.unit));
+        while (!worklist.isEmpty()) {
+            Unit unit = worklist.pop();
+            if (!visited.add(unit)) {
+                continue;
+            }
+            if (query.name.equals(getStoredField(unit))) {
+                stores.add(unit);
+            }
+            worklist.addAll(graph.getPredsOf(unit));
+        }
+        reachingStores.put(query, stores);
+        return stores;
+    }
+
+    /**
+     * The units whose output reaches <code>unit</code>: its predecessors, or the tails for the end of the method.
+     */
+    private List<Unit> getStartUnits(Unit unit) {
+        return unit == null ? graph.getTails() : graph.getPredsOf(unit);
+    }
+
+    /**
+     * Name of the variable assigned by the unit, if {@link PointsToVisitor} models the assignment: a local, or the
+     * signature of a static field.
+     */
+    private static String getDefinedVariable(Unit unit) {
+        if (!(unit instanceof AssignStmt)) {
+            return null;
+        }
+        AssignStmt stmt = (AssignStmt) unit;
+        Value left = stmt.getLeftOp();
+        Value right = stmt.getRightOp();
+        if (left instanceof StaticFieldRef) {
+            return PointsToVisitor.isReference(right) ? ((StaticFieldRef) left).getField().getSignature() : null;
+        }
+        boolean isSupported = right instanceof AnyNewExpr || right instanceof Local || right instanceof JInstanceFieldRef
+                || right instanceof NullConstant
+                || PointsToVisitor.isReference(right) && (right instanceof CastExpr || right instanceof ArrayRef
+                        || right instanceof StaticFieldRef || right instanceof InvokeExpr);
+        if (left instanceof Local && isSupported) {
+            return left.toString();
+        }
+        return null;
+    }
+
+    /**
+     * Name of the field written by the unit, if it is a store <code>x.f = y</code>, or {@link PointsToGraph#ARRAY_FIELD}
+     * if it is a store <code>x[i] = y</code>.
+     */
+    private static String getStoredField(Unit unit) {
+        if (!(unit instanceof AssignStmt)) {
+            return null;
+        }
+        AssignStmt stmt = (AssignStmt) unit;
+        Value right = stmt.getRightOp();
+        if (stmt.getLeftOp() instanceof JInstanceFieldRef && (right instanceof Local || right instanceof NullConstant)) {
+            return ((JInstanceFieldRef) stmt.getLeftOp()).getField().getName();
+        }
+        if (stmt.getLeftOp() instanceof ArrayRef && PointsToVisitor.isReference(right)) {
+            return PointsToGraph.ARRAY_FIELD;
+        }
+        return null;
+    }
+
+    private static Value getStoreBase(AssignStmt store) {
+        Value left = store.getLeftOp();
+        return left instanceof ArrayRef ? ((ArrayRef) left).getBase() : ((JInstanceFieldRef) left).getBase();
+    }
+
+    private static Value getLoadBase(Value load) {
+        return load instanceof ArrayRef ? ((ArrayRef) load).getBase() : ((JInstanceFieldRef) load).getBase();
+    }
+
+    private static String getLoadedField(Value load) {
+        return load instanceof ArrayRef ? PointsToGraph.ARRAY_FIELD : ((JInstanceFieldRef) load).getField().getName();
+    }
+
+    /**
+     * A variable or field name at a program point (null for the end of the method).
+     */
+    private static final class Query {
+        private final String name;
+        private final Unit unit;
+
+        private Query(String name, Unit unit) {
+            this.name = name;
+            this.unit = unit;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Query)) return false;
+            Query otherQuery = (Query) other;
+            return name.equals(otherQuery.name) && unit == otherQuery.unit;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + System.identityHashCode(unit);
+        }
+    }
+}
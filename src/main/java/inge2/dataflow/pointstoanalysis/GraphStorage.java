@@ -0,0 +1,32 @@
+package inge2.dataflow.pointstoanalysis;
+
+/**
+ * Where a {@link PointsToGraph} keeps its edges and its mapping of variables.
+ */
+public enum GraphStorage {
+
+    /**
+     * Java collections: a {@link java.util.HashSet} of {@link Axis} and a {@link java.util.HashMap} of variables.
+     */
+    HEAP,
+
+    /**
+     * Direct (off-heap) buffers: the edges are packed (src, field, dst) int triples in a hash table and the nodes of
+     * each variable are sorted int segments. Nodes, fields and variables are numbered by tables shared by the
+     * graphs of an analysis. The elements read from the graph are created on demand, and the buffers are returned
+     * to a bounded pool by {@link PointsToGraph#free()}.
+     */
+    OFF_HEAP;
+
+    /**
+     * Parses the value of the "storage" option: heap or off-heap.
+     */
+    public static GraphStorage fromOption(String value) {
+        for (GraphStorage storage : values()) {
+            if (storage.name().replace('_', '-').equalsIgnoreCase(value)) {
+                return storage;
+            }
+        }
+        throw new IllegalArgumentException("Unknown storage: " + value);
+    }
+}
@@ -0,0 +1,57 @@
+package inge2.dataflow.pointstoanalysis;
+
+import soot.FastHierarchy;
+import soot.RefLikeType;
+import soot.Scene;
+import soot.SootField;
+import soot.Type;
+import soot.jimple.AssignStmt;
+import soot.jimple.Stmt;
+
+/**
+ * Decides which graph node represents the objects created by an allocation statement.
+ */
+public interface HeapAbstraction {
+
+    /**
+     * Returns the node for the objects allocated by <code>stmt</code>.
+     * @param stmt an assignment whose right operand is a <code>new</code> expression.
+     * @return the node that represents the allocated objects.
+     */
+    Node getNode(AssignStmt stmt);
+
+    /**
+     * Returns the node for the objects created by the call of <code>stmt</code>: one node per call site, named
+     * after its source line, the called method and its position in the body (several calls can share a line).
+     * The callee is not analysed, so the node has no type.
+     * @param stmt a statement that contains an invoke expression.
+     * @param index the position of the statement in the body (see {@link CallSites#getIndex}), or -1 if unknown.
+     */
+    default Node getCallNode(Stmt stmt, int index) {
+        String name = stmt.getJavaSourceStartLineNumber() + ":" + stmt.getInvokeExpr().getMethodRef().getName() + "()";
+        return new Node(index >= 0 ? name + "#" + index : name);
+    }
+
+    /**
+     * Returns the node for the objects a static field points to when the method starts.
+     * @param field a static field of reference type.
+     */
+    default Node getStaticNode(SootField field) {
+        return new Node(field.getSignature());
+    }
+
+    /**
+     * Returns true if some object represented by <code>node</code> can be stored in a variable of type
+     * <code>declaredType</code>. Nodes without type information are always compatible.
+     * @param node a node created by this abstraction.
+     * @param declaredType the declared type of the variable.
+     * @return false only if none of the objects of the node can be assigned to the variable.
+     */
+    default boolean mayHaveType(Node node, Type declaredType) {
+        if (node.type == null || !(declaredType instanceof RefLikeType)) {
+            return true;
+        }
+        FastHierarchy hierarchy = Scene.v().getOrMakeFastHierarchy();
+        return hierarchy.canStoreType(node.type, declaredType);
+    }
+}
@@ -0,0 +1,221 @@
+package inge2.dataflow.pointstoanalysis;
+
+import java.util.*;
+
+/**
+ * Transitive closure of the edges of a {@link PointsToGraph}, optionally restricted to a set of fields.
+ *
+ * The closure is computed once over the strongly connected components of the graph: every node of a component
+ * reaches the same nodes, so the components are collapsed and their closures are computed as bitsets in reverse
+ * topological order. Afterwards, each added edge updates the closure incrementally instead of recomputing it.
+ */
+public class HeapReachability {
+
+    /**
+     * Campos considerados, o null si se consideran todos.
+     */
+    private final Set<String> fieldNames;
+
+    private final Map<Node, Integer> ids = new HashMap<>();
+    private final List<Node> nodesById = new ArrayList<>();
+
+    /**
+     * Nodos alcanzables (por uno o mas ejes) desde cada nodo. Los nodos de una misma componente fuertemente conexa
+     * comparten el mismo BitSet.
+     */
+    private final List<BitSet> reachable = new ArrayList<>();
+
+    /**
+     * Cantidad de ejes del grafo (de cualquier campo) reflejados en la clausura.
+     */
+    private int graphEdgeCount;
+
+    /**
+     * @param graph the graph whose edges are closed.
+     * @param fieldNames the fields to follow, or null to follow every field.
+     */
+    public HeapReachability(PointsToGraph graph, Set<String> fieldNames) {
+        this.fieldNames = fieldNames;
+        build(graph.axis);
+    }
+
+    /**
+     * Devuelve los nodos alcanzables desde <code>node</code> siguiendo uno o mas ejes.
+     * El propio nodo solo se incluye si esta en un ciclo.
+     */
+    public Set<Node> getReachableNodes(Node node) {
+        Integer id = ids.get(node);
+        Set<Node> result = new HashSet<>();
+        if (id == null) {
+            return result;
+        }
+        BitSet bits = reachable.get(id);
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            result.add(nodesById.get(i));
+        }
+        return result;
+    }
+
+    public boolean isReachable(Node from, Node to) {
+        Integer fromId = ids.get(from);
+        Integer toId = ids.get(to);
+        return fromId != null && toId != null && reachable.get(fromId).get(toId);
+    }
+
+    /**
+     * Returns how many edges of the graph, of any field, the closure accounts for.
+     */
+    public int getGraphEdgeCount() {
+        return graphEdgeCount;
+    }
+
+    /**
+     * Updates the closure after the edge (leftNode, fieldName, rightNode) was added to the graph: every node that
+     * reaches leftNode (and leftNode itself) now also reaches rightNode and everything reachable from it.
+     */
+    public void edgeAdded(Node leftNode, String fieldName, Node rightNode) {
+        graphEdgeCount++;
+        if (!follows(fieldName)) {
+            return;
+        }
+        int left = getOrCreateId(leftNode);
+        int right = getOrCreateId(rightNode);
+        if (reachable.get(left).get(right)) {
+            // Everything reachable from rightNode was already reachable from leftNode.
+            return;
+        }
+        BitSet delta = (BitSet) reachable.get(right).clone();
+        delta.set(right);
+        Set<BitSet> updated = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int id = 0; id < nodesById.size(); id++) {
+            BitSet bits = reachable.get(id);
+            if ((id == left || bits.get(left)) && updated.add(bits)) {
+                bits.or(delta);
+            }
+        }
+    }
+
+    private boolean follows(String fieldName) {
+        return fieldNames == null || fieldNames.contains(fieldName);
+    }
+
+    private int getOrCreateId(Node node) {
+        Integer id = ids.get(node);
+        if (id == null) {
+            id = nodesById.size();
+            ids.put(node, id);
+            nodesById.add(node);
+            reachable.add(new BitSet());
+        }
+        return id;
+    }
+
+    private void build(Set<Axis> edges) {
+        List<List<Integer>> successors = new ArrayList<>();
+        graphEdgeCount = edges.size();
+        for (Axis edge : edges) {
+            if (!follows(edge.fieldName)) {
+                continue;
+            }
+            int left = getOrCreateId(edge.leftNode);
+            int right = getOrCreateId(edge.rightNode);
+            while (successors.size() < nodesById.size()) {
+                successors.add(new ArrayList<>());
+            }
+            successors.get(left).add(right);
+        }
+        while (successors.size() < nodesById.size()) {
+            successors.add(new ArrayList<>());
+        }
+
+        // Components come out of Tarjan's algorithm in reverse topological order: the successors of a component
+        // are always closed before it.
+        int[] component = new int[nodesById.size()];
+        List<List<Integer>> components = stronglyConnectedComponents(successors, component);
+        List<BitSet> closures = new ArrayList<>();
+        for (int c = 0; c < components.size(); c++) {
+            BitSet closure = new BitSet();
+            boolean cyclic = components.get(c).size() > 1;
+            for (int node : components.get(c)) {
+                for (int successor : successors.get(node)) {
+                    if (component[successor] == c) {
+                        cyclic = true;
+                    } else {
+                        closure.set(successor);
+                        closure.or(closures.get(component[successor]));
+                    }
+                }
+            }
+            if (cyclic) {
+                for (int node : components.get(c)) {
+                    closure.set(node);
+                }
+            }
+            closures.add(closure);
+        }
+        for (int id = 0; id < nodesById.size(); id++) {
+            reachable.set(id, closures.get(component[id]));
+        }
+    }
+
+    /**
+     * Iterative version of Tarjan's algorithm.
+     * @param successors adjacency list of the graph.
+     * @param component output: component index of each node.
+     * @return the nodes of each component, in reverse topological order.
+     */
+    private static List<List<Integer>> stronglyConnectedComponents(List<List<Integer>> successors, int[] component) {
+        int size = successors.size();
+        int[] index = new int[size];
+        int[] lowLink = new int[size];
+        int[] nextSuccessor = new int[size];
+        boolean[] onStack = new boolean[size];
+        Arrays.fill(index, -1);
+        Deque<Integer> stack = new ArrayDeque<>();
+        Deque<Integer> callStack = new ArrayDeque<>();
+        List<List<Integer>> components = new ArrayList<>();
+        int nextIndex = 0;
+
+        for (int root = 0; root < size; root++) {
+            if (index[root] != -1) {
+                continue;
+            }
+            callStack.push(root);
+            while (!callStack.isEmpty()) {
+                int node = callStack.peek();
+                if (index[node] == -1) {
+                    index[node] = lowLink[node] = nextIndex++;
+                    stack.push(node);
+                    onStack[node] = true;
+                }
+                List<Integer> nodeSuccessors = successors.get(node);
+                if (nextSuccessor[node] < nodeSuccessors.size()) {
+                    int successor = nodeSuccessors.get(nextSuccessor[node]++);
+                    if (index[successor] == -1) {
+                        callStack.push(successor);
+                    } else if (onStack[successor]) {
+                        lowLink[node] = Math.min(lowLink[node], index[successor]);
+                    }
+                    continue;
+                }
+                callStack.pop();
+                if (!callStack.isEmpty()) {
+                    int parent = callStack.peek();
+                    lowLink[parent] = Math.min(lowLink[parent], lowLink[node]);
+                }
+                if (lowLink[node] == index[node]) {
+                    List<Integer> members = new ArrayList<>();
+                    int member;
+                    do {
+                        member = stack.pop();
+                        onStack[member] = false;
+                        component[member] = components.size();
+                        members.add(member);
+                    } while (member != node);
+                    components.add(members);
+                }
+            }
+        }
+        return components;
+    }
+}
@@ -0,0 +1,281 @@
+package inge2.dataflow.pointstoanalysis;
+
+import soot.Body;
+import soot.Unit;
+import soot.toolkits.graph.PseudoTopologicalOrderer;
+import soot.toolkits.graph.StronglyConnectedComponentsFast;
+import soot.toolkits.graph.UnitGraph;
+
+import java.util.*;
+
+/**
+ * Version of {@link PointsToAnalysis} that keeps the graph of every unit so that, after the body of the method is
+ * edited, only the changed units and the units that depend on them are analysed again.
+ *
+ * On {@link #update}, the worklist is seeded with the changed units. An acyclic unit whose output does not change
+ * stops the propagation. The units of a loop cannot keep their previous graphs, because a fact that is no longer
+ * produced could still be supported by the loop itself; so, the first time a unit of a loop is reached, the whole
+ * loop is reset to the empty graph (retraction) and solved again from its new inputs.
+ */
+public class IncrementalPointsToAnalysis implements PointsToQueries {
+
+    private final PointsToConfig config;
+
+    /**
+     * Numeracion de los grafos off-heap de este analisis.
+     */
+    private final OffHeapSymbols symbols = new OffHeapSymbols();
+
+    private UnitGraph graph;
+
+    private final Map<Unit, PointsToGraph> unitToAfterFlow = new HashMap<>();
+
+    /**
+     * Texto y predecesores de cada unidad en el ultimo analisis, para detectar las unidades modificadas.
+     */
+    private final Map<Unit, String> unitToText = new HashMap<>();
+    private final Map<Unit, Set<Unit>> unitToPreds = new HashMap<>();
+
+    private PointsToGraph lastPointsToGraph;
+
+    private int lastFlowThroughCount;
+
+    private StrongUpdates strongUpdates;
+    private CallSites callSites;
+
+    /**
+     * Stores whose last evaluation was a strong update.
+     */
+    private final Set<Unit> strongStores = new HashSet<>();
+
+    public IncrementalPointsToAnalysis(UnitGraph graph) {
+        this(graph, new PointsToConfig());
+    }
+
+    public IncrementalPointsToAnalysis(UnitGraph graph, PointsToConfig config) {
+        this.config = config;
+        update(graph, graph.getBody().getUnits());
+    }
+
+    public Body getBody() {
+        return graph.getBody();
+    }
+
+    public PointsToGraph getLastPointsToGraph() {
+        return lastPointsToGraph;
+    }
+
+    public PointsToGraph getFlowAfter(Unit unit) {
+        return unitToAfterFlow.get(unit);
+    }
+
+    /**
+     * Returns how many units were analysed by the last (re-)analysis.
+     */
+    public int getLastFlowThroughCount() {
+        return lastFlowThroughCount;
+    }
+
+    /**
+     * Returns how many stores replaced the earlier targets of their field in the current graphs.
+     */
+    public int getStrongUpdateCount() {
+        return strongStores.size();
+    }
+
+    /**
+     * Analyses the body again after it was edited, rebuilding its control flow graph with the kind selected by
+     * {@link PointsToConfig#getCfg()}.
+     * @return the units detected as changed.
+     */
+    public Set<Unit> update() {
+        return update(config.getCfg().build(getBody()));
+    }
+
+    /**
+     * Analyses again the units of <code>newGraph</code> that were added, whose statement changed or whose
+     * predecessors changed since the last analysis, and the units that depend on them.
+     * @param newGraph the control flow graph of the edited body.
+     * @return the units detected as changed.
+     */
+    public Set<Unit> update(UnitGraph newGraph) {
+        Set<Unit> changedUnits = new HashSet<>();
+        for (Unit unit : newGraph.getBody().getUnits()) {
+            boolean isNew = !unitToText.containsKey(unit);
+            if (isNew || !unitToText.get(unit).equals(unit.toString())
+                    || !unitToPreds.get(unit).equals(new HashSet<>(newGraph.getPredsOf(unit)))) {
+                changedUnits.add(unit);
+            }
+        }
+        update(newGraph, changedUnits);
+        return changedUnits;
+    }
+
+    /**
+     * Analyses again the given units of <code>newGraph</code> and the units that depend on them.
+     * @param newGraph the control flow graph of the edited body.
+     * @param changedUnits the units whose statement or predecessors changed.
+     */
+    public void update(UnitGraph newGraph, Collection<Unit> changedUnits) {
+        this.graph = newGraph;
+        lastFlowThroughCount = 0;
+
+        if (config.isStrongUpdates()) {
+            StrongUpdates newStrongUpdates = new StrongUpdates(newGraph, config.getHeapAbstraction());
+            if (strongUpdates != null
+                    && (!strongUpdates.getSingleObjectNodes().equals(newStrongUpdates.getSingleObjectNodes())
+                    || !strongUpdates.getAllocatedLocals().equals(newStrongUpdates.getAllocatedLocals()))) {
+                // An edit turned a node into a summary, or a local into one that may hold other objects, or vice
+                // versa: any store may change, analyse everything.
+                changedUnits = newGraph.getBody().getUnits();
+            }
+            strongUpdates = newStrongUpdates;
+        }
+
+        CallSites newCallSites = new CallSites(newGraph);
+        if (callSites != null && (callSites.hasMovedCalls(newCallSites) || config.getCalls() == CallModel.CONSERVATIVE
+                && (!callSites.getFieldNames().equals(newCallSites.getFieldNames())
+                || !callSites.getStaticFields().equals(newCallSites.getStaticFields())))) {
+            // The nodes of the calls are named after their positions, which moved, or a call may now write other
+            // fields: analyse everything.
+            changedUnits = newGraph.getBody().getUnits();
+        }
+        callSites = newCallSites;
+
+        // Forget the units that were removed from the body.
+        Set<Unit> units = new HashSet<>(newGraph.getBody().getUnits());
+        for (Iterator<Map.Entry<Unit, PointsToGraph>> it = unitToAfterFlow.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Unit, PointsToGraph> entry = it.next();
+            if (!units.contains(entry.getKey())) {
+                entry.getValue().free();
+                it.remove();
+            }
+        }
+        unitToText.keySet().retainAll(units);
+        strongStores.retainAll(units);
+        unitToPreds.keySet().retainAll(units);
+
+        Map<Unit, Integer> order = new HashMap<>();
+        for (Unit unit : new PseudoTopologicalOrderer<Unit>().newList(newGraph, false)) {
+            order.put(unit, order.size());
+        }
+        Map<Unit, List<Unit>> unitToLoop = new HashMap<>();
+        for (List<Unit> component : new StronglyConnectedComponentsFast<>(newGraph).getComponents()) {
+            Unit first = component.get(0);
+            if (component.size() > 1 || newGraph.getSuccsOf(first).contains(first)) {
+                for (Unit unit : component) {
+                    unitToLoop.put(unit, component);
+                }
+            }
+        }
+
+        // Units are processed in pseudo-topological order, so a loop is only reached once every unit before it
+        // is stable.
+        PriorityQueue<Unit> worklist = new PriorityQueue<>(Comparator.comparing(unit -> order.getOrDefault(unit, Integer.MAX_VALUE)));
+        Set<Unit> queued = new HashSet<>();
+        Set<List<Unit>> resetLoops = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Unit unit : changedUnits) {
+            if (queued.add(unit)) {
+                worklist.add(unit);
+            }
+        }
+        while (!worklist.isEmpty()) {
+            Unit unit = worklist.poll();
+            queued.remove(unit);
+
+            List<Unit> loop = unitToLoop.get(unit);
+            if (loop != null && resetLoops.add(loop)) {
+                for (Unit loopUnit : loop) {
+                    PointsToGraph previous = unitToAfterFlow.put(loopUnit, new PointsToGraph(config.getStorage(), symbols));
+                    if (previous != null) {
+                        previous.free();
+                    }
+                    if (queued.add(loopUnit)) {
+                        worklist.add(loopUnit);
+                    }
+                }
+            }
+
+            PointsToGraph in = new PointsToGraph(config.getStorage(), symbols);
+            for (Unit pred : newGraph.getPredsOf(unit)) {
+                PointsToGraph predOut = unitToAfterFlow.get(pred);
+                if (predOut != null) {
+                    in.union(predOut);
+                }
+            }
+            PointsToGraph out = new PointsToGraph(config.getStorage(), symbols);
+            flowThrough(in, unit, out);
+            in.free();
+            lastFlowThroughCount++;
+
+            PointsToGraph previous = unitToAfterFlow.get(unit);
+            if (out.equals(previous)) {
+                out.free();
+            } else {
+                unitToAfterFlow.put(unit, out);
+                if (previous != null) {
+                    previous.free();
+                }
+                for (Unit succ : newGraph.getSuccsOf(unit)) {
+                    if (queued.add(succ)) {
+                        worklist.add(succ);
+                    }
+                }
+            }
+            unitToText.put(unit, unit.toString());
+            unitToPreds.put(unit, new HashSet<>(newGraph.getPredsOf(unit)));
+        }
+
+        if (lastPointsToGraph != null) {
+            lastPointsToGraph.free();
+        }
+        lastPointsToGraph = new PointsToGraph(config.getStorage(), symbols);
+        for (Unit tail : newGraph.getTails()) {
+            PointsToGraph tailOut = unitToAfterFlow.get(tail);
+            if (tailOut != null) {
+                lastPointsToGraph.union(tailOut);
+            }
+        }
+    }
+
+    /**
+     * Same flow function as {@link PointsToAnalysis}.
+     */
+    private void flowThrough(PointsToGraph in, Unit unit, PointsToGraph out) {
+        out.copy(in);
+
+        PointsToVisitor visitor = new PointsToVisitor(out, config, strongUpdates, callSites);
+        unit.apply(visitor);
+        if (visitor.wasStrongUpdate()) {
+            strongStores.add(unit);
+        } else {
+            strongStores.remove(unit);
+        }
+    }
+
+    @Override
+    public Set<Node> getNodesForVariable(String variableName) {
+        return lastPointsToGraph.getNodesForVariable(variableName);
+    }
+
+    @Override
+    public boolean mayAlias(String leftVariableName, String rightVariableName) {
+        Set<Node> nX = lastPointsToGraph.getNodesForVariable(leftVariableName);
+        Set<Node> nY = lastPointsToGraph.getNodesForVariable(rightVariableName);
+        return nX != null && nY != null && !Collections.disjoint(nX, nY);
+    }
+
+    @Override
+    public boolean mayAlias(String leftVariableName, String fieldName, String rightVariableName) {
+        Set<Node> nX = lastPointsToGraph.getNodesForVariable(leftVariableName);
+        Set<Node> nY = lastPointsToGraph.getNodesForVariable(rightVariableName);
+        if (nX == null || nY == null) {
+            return false;
+        }
+        Set<Node> n = new HashSet<>();
+        for (Node node : nX) {
+            n.addAll(lastPointsToGraph.getReachableNodesByField(node, fieldName));
+        }
+        return !Collections.disjoint(n, nY);
+    }
+}
@@ -1,9 +1,26 @@
 package inge2.dataflow.pointstoanalysis;
 
+import soot.Type;
+
+import java.util.Objects;
+
 public class Node {
-    public String name;
+    public final String name;
+
+    /**
+     * Tipo de los objetos representados por el nodo, o null si no se conoce.
+     * Forma parte de la identidad del nodo: dos allocations en la misma linea con tipos distintos son nodos
+     * distintos, y el filtro de tipos nunca descarta uno por el tipo del otro.
+     */
+    public final Type type;
+
     public Node(String name) {
+        this(name, null);
+    }
+
+    public Node(String name, Type type) {
         this.name = name;
+        this.type = type;
     }
 
     @Override
@@ -17,12 +34,13 @@ public class Node {
         if (other == this) return true;
         if (!(other instanceof Node))return false;
         Node otherMyClass = (Node)other;
-        return this.name.equals(otherMyClass.name);
+        return this.name.equals(otherMyClass.name) && Objects.equals(this.type, otherMyClass.type);
     }
 
     public int hashCode() {
         int result = 0;
         result = 31*result + (name !=null ? name.hashCode() : 0);
+        result = 31*result + (type != null ? type.hashCode() : 0);
         return result;
     }
 }
@@ -0,0 +1,324 @@
+package inge2.dataflow.pointstoanalysis;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Set of edges stored as (src, field, dst) int triples in an open addressing hash table in a direct buffer.
+ * The {@link Axis} objects are only created while iterating.
+ *
+ * Edges are hashed by (src, field) only, so the table doubles as an index: with linear probing, every edge of a
+ * (src, field) pair lies in the run of slots that starts at their common home slot and ends at the next empty one.
+ */
+final class OffHeapAxisSet extends AbstractSet<Axis> {
+
+    private static final int SLOT_BYTES = 12;
+    private static final int MIN_SLOTS = 16;
+
+    /**
+     * The first int of a slot is the source node number plus one: 0 marks an empty slot and -1 a removed edge.
+     */
+    private static final int EMPTY = 0;
+    private static final int REMOVED = -1;
+
+    private final OffHeapSymbols symbols;
+
+    private ByteBuffer table;
+    private int slots;
+    private int size;
+
+    /**
+     * Slots that are not empty: edges and removed edges.
+     */
+    private int usedSlots;
+
+    OffHeapAxisSet(OffHeapSymbols symbols) {
+        this.symbols = symbols;
+        allocate(MIN_SLOTS);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(Axis axis) {
+        return add(symbols.nodes.getId(axis.leftNode), symbols.fields.getId(axis.fieldName),
+                symbols.nodes.getId(axis.rightNode));
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        if (!(object instanceof Axis)) {
+            return false;
+        }
+        checkNotFreed();
+        Axis axis = (Axis) object;
+        int src = symbols.nodes.findId(axis.leftNode);
+        int field = symbols.fields.findId(axis.fieldName);
+        int dst = symbols.nodes.findId(axis.rightNode);
+        return src >= 0 && field >= 0 && dst >= 0 && findSlot(src, field, dst) >= 0;
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        if (!(object instanceof Axis)) {
+            return false;
+        }
+        checkNotFreed();
+        Axis axis = (Axis) object;
+        int src = symbols.nodes.findId(axis.leftNode);
+        int field = symbols.fields.findId(axis.fieldName);
+        int dst = symbols.nodes.findId(axis.rightNode);
+        if (src < 0 || field < 0 || dst < 0) {
+            return false;
+        }
+        int slot = findSlot(src, field, dst);
+        if (slot < 0) {
+            return false;
+        }
+        removeSlot(slot);
+        return true;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Axis> edges) {
+        if (!(edges instanceof OffHeapAxisSet) || ((OffHeapAxisSet) edges).symbols != symbols) {
+            return super.addAll(edges);
+        }
+        OffHeapAxisSet other = (OffHeapAxisSet) edges;
+        other.checkNotFreed();
+        boolean changed = false;
+        for (int slot = 0; slot < other.slots; slot++) {
+            int key = other.table.getInt(slot * SLOT_BYTES);
+            if (key != EMPTY && key != REMOVED) {
+                changed |= add(key - 1, other.table.getInt(slot * SLOT_BYTES + 4), other.table.getInt(slot * SLOT_BYTES + 8));
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public void clear() {
+        checkNotFreed();
+        if (usedSlots > 0) {
+            OffHeapBuffers.release(table);
+            allocate(MIN_SLOTS);
+        }
+    }
+
+    /**
+     * Replaces the edges of this set by the ones of <code>other</code>, copying its table. Both sets must share
+     * their symbols.
+     */
+    void copyFrom(OffHeapAxisSet other) {
+        checkNotFreed();
+        other.checkNotFreed();
+        OffHeapBuffers.release(table);
+        table = OffHeapBuffers.allocate(other.slots * SLOT_BYTES);
+        ByteBuffer source = other.table.duplicate();
+        source.clear().limit(other.slots * SLOT_BYTES);
+        ByteBuffer target = table.duplicate();
+        target.clear();
+        target.put(source);
+        slots = other.slots;
+        size = other.size;
+        usedSlots = other.usedSlots;
+    }
+
+    /**
+     * Nodos alcanzables desde <code>node</code> por el campo <code>fieldName</code>, sin crear un {@link Axis} por
+     * cada eje.
+     */
+    Set<Node> getTargets(Node node, String fieldName) {
+        checkNotFreed();
+        Set<Node> targets = new HashSet<>();
+        int src = symbols.nodes.findId(node);
+        int field = symbols.fields.findId(fieldName);
+        if (src < 0 || field < 0) {
+            return targets;
+        }
+        for (int slot = hash(src, field) & (slots - 1); ; slot = (slot + 1) & (slots - 1)) {
+            int offset = slot * SLOT_BYTES;
+            int key = table.getInt(offset);
+            if (key == EMPTY) {
+                return targets;
+            } else if (key == src + 1 && table.getInt(offset + 4) == field) {
+                targets.add(symbols.nodes.get(table.getInt(offset + 8)));
+            }
+        }
+    }
+
+    /**
+     * Returns the buffer to the pool. The set cannot be used afterwards.
+     */
+    void free() {
+        if (table != null) {
+            OffHeapBuffers.release(table);
+            table = null;
+            slots = size = usedSlots = 0;
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof OffHeapAxisSet) || ((OffHeapAxisSet) other).symbols != symbols) {
+            return super.equals(other);
+        }
+        OffHeapAxisSet otherSet = (OffHeapAxisSet) other;
+        checkNotFreed();
+        otherSet.checkNotFreed();
+        if (size != otherSet.size) {
+            return false;
+        }
+        for (int slot = 0; slot < slots; slot++) {
+            int key = table.getInt(slot * SLOT_BYTES);
+            if (key != EMPTY && key != REMOVED
+                    && otherSet.findSlot(key - 1, table.getInt(slot * SLOT_BYTES + 4), table.getInt(slot * SLOT_BYTES + 8)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    @Override
+    public Iterator<Axis> iterator() {
+        checkNotFreed();
+        return new Iterator<Axis>() {
+            private int nextSlot = advance(0);
+            private int lastSlot = -1;
+
+            private int advance(int slot) {
+                while (slot < slots) {
+                    int key = table.getInt(slot * SLOT_BYTES);
+                    if (key != EMPTY && key != REMOVED) {
+                        break;
+                    }
+                    slot++;
+                }
+                return slot;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return nextSlot < slots;
+            }
+
+            @Override
+            public Axis next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int offset = nextSlot * SLOT_BYTES;
+                Axis axis = new Axis(symbols.nodes.get(table.getInt(offset) - 1),
+                        symbols.fields.get(table.getInt(offset + 4)),
+                        symbols.nodes.get(table.getInt(offset + 8)));
+                lastSlot = nextSlot;
+                nextSlot = advance(nextSlot + 1);
+                return axis;
+            }
+
+            @Override
+            public void remove() {
+                if (lastSlot < 0) {
+                    throw new IllegalStateException();
+                }
+                // Removed slots are only marked, so the iteration order does not change.
+                removeSlot(lastSlot);
+                lastSlot = -1;
+            }
+        };
+    }
+
+    private boolean add(int src, int field, int dst) {
+        checkNotFreed();
+        if ((usedSlots + 1) * 2 > slots) {
+            // Grow if the table is full of edges; otherwise, rehashing drops the removed ones.
+            rehash(size * 4 >= slots ? slots * 2 : slots);
+        }
+        int slot = hash(src, field) & (slots - 1);
+        int firstRemoved = -1;
+        while (true) {
+            int offset = slot * SLOT_BYTES;
+            int key = table.getInt(offset);
+            if (key == EMPTY) {
+                break;
+            } else if (key == REMOVED) {
+                if (firstRemoved < 0) {
+                    firstRemoved = slot;
+                }
+            } else if (key == src + 1 && table.getInt(offset + 4) == field && table.getInt(offset + 8) == dst) {
+                return false;
+            }
+            slot = (slot + 1) & (slots - 1);
+        }
+        if (firstRemoved >= 0) {
+            slot = firstRemoved;
+        } else {
+            usedSlots++;
+        }
+        int offset = slot * SLOT_BYTES;
+        table.putInt(offset, src + 1);
+        table.putInt(offset + 4, field);
+        table.putInt(offset + 8, dst);
+        size++;
+        return true;
+    }
+
+    private int findSlot(int src, int field, int dst) {
+        checkNotFreed();
+        int slot = hash(src, field) & (slots - 1);
+        while (true) {
+            int offset = slot * SLOT_BYTES;
+            int key = table.getInt(offset);
+            if (key == EMPTY) {
+                return -1;
+            } else if (key == src + 1 && table.getInt(offset + 4) == field && table.getInt(offset + 8) == dst) {
+                return slot;
+            }
+            slot = (slot + 1) & (slots - 1);
+        }
+    }
+
+    private void removeSlot(int slot) {
+        table.putInt(slot * SLOT_BYTES, REMOVED);
+        size--;
+    }
+
+    private void rehash(int newSlots) {
+        ByteBuffer oldTable = table;
+        int oldSlots = slots;
+        allocate(newSlots);
+        for (int slot = 0; slot < oldSlots; slot++) {
+            int key = oldTable.getInt(slot * SLOT_BYTES);
+            if (key != EMPTY && key != REMOVED) {
+                add(key - 1, oldTable.getInt(slot * SLOT_BYTES + 4), oldTable.getInt(slot * SLOT_BYTES + 8));
+            }
+        }
+        OffHeapBuffers.release(oldTable);
+    }
+
+    private void allocate(int newSlots) {
+        table = OffHeapBuffers.allocate(newSlots * SLOT_BYTES);
+        slots = newSlots;
+        size = 0;
+        usedSlots = 0;
+    }
+
+    private void checkNotFreed() {
+        if (table == null) {
+            throw new IllegalStateException("The graph was freed");
+        }
+    }
+
+    private static int hash(int src, int field) {
+        int hash = src * 0x9E3779B1 ^ field * 0x85EBCA77;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,78 @@
+package inge2.dataflow.pointstoanalysis;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of direct buffers used by the off-heap graphs.
+ *
+ * Direct buffers are only released when the garbage collector finds them unreachable, so the graphs give their
+ * buffers back to this pool when they are freed and new graphs reuse them. Buffers are allocated in power of two
+ * sizes, one free list per size. The pool keeps at most {@link #MAX_POOLED_BYTES}; buffers released beyond that are
+ * left to the garbage collector, so a long-running process does not keep the peak of its largest analysis forever.
+ */
+final class OffHeapBuffers {
+
+    private static final int MIN_BYTES = 64;
+
+    /**
+     * Bytes que puede guardar el pool, configurable con la propiedad "offHeapPoolBytes" (64 MB por defecto).
+     */
+    static final long MAX_POOLED_BYTES = Long.getLong("offHeapPoolBytes", 64L << 20);
+
+    private static final List<ConcurrentLinkedDeque<ByteBuffer>> FREE_LISTS = new ArrayList<>();
+
+    static {
+        for (int i = 0; i < 32; i++) {
+            FREE_LISTS.add(new ConcurrentLinkedDeque<>());
+        }
+    }
+
+    private static final AtomicLong POOLED_BYTES = new AtomicLong();
+
+    private OffHeapBuffers() {
+    }
+
+    /**
+     * Returns a zeroed buffer of at least <code>bytes</code> bytes.
+     */
+    static ByteBuffer allocate(int bytes) {
+        int sizeClass = sizeClass(bytes);
+        ByteBuffer buffer = FREE_LISTS.get(sizeClass).poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(1 << sizeClass).order(ByteOrder.nativeOrder());
+        }
+        POOLED_BYTES.addAndGet(-buffer.capacity());
+        for (int i = 0; i < buffer.capacity(); i += 8) {
+            buffer.putLong(i, 0L);
+        }
+        return buffer;
+    }
+
+    /**
+     * Gives a buffer back to the pool, or drops it if the pool is full. The buffer must not be used afterwards.
+     */
+    static void release(ByteBuffer buffer) {
+        if (POOLED_BYTES.addAndGet(buffer.capacity()) > MAX_POOLED_BYTES) {
+            POOLED_BYTES.addAndGet(-buffer.capacity());
+            return;
+        }
+        FREE_LISTS.get(Integer.numberOfTrailingZeros(buffer.capacity())).push(buffer);
+    }
+
+    /**
+     * Returns how many bytes the pool keeps.
+     */
+    static long getPooledBytes() {
+        return POOLED_BYTES.get();
+    }
+
+    private static int sizeClass(int bytes) {
+        int size = Math.max(MIN_BYTES, Integer.highestOneBit(Math.max(bytes, 1) - 1) << 1);
+        return Integer.numberOfTrailingZeros(size);
+    }
+}
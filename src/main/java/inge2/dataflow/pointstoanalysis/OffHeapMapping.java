@@ -0,0 +1,372 @@
+package inge2.dataflow.pointstoanalysis;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Mapping of variables to nodes stored in direct buffers: an open addressing index of (variable, offset, length)
+ * int triples and a segment with the sorted node numbers of each variable.
+ *
+ * Like the sets of {@link PointsToGraph#mapping}, the sets read from this map are never modified: each read
+ * creates an unmodifiable copy, and each write copies the given set into the segment.
+ */
+final class OffHeapMapping extends AbstractMap<String, Set<Node>> {
+
+    private static final int SLOT_BYTES = 12;
+    private static final int MIN_SLOTS = 16;
+    private static final int MIN_SEGMENT_INTS = 64;
+
+    /**
+     * The first int of a slot is the variable number plus one: 0 marks an empty slot and -1 a removed variable.
+     * A length of -1 stands for a null set.
+     */
+    private static final int EMPTY = 0;
+    private static final int REMOVED = -1;
+    private static final int NULL_SET = -1;
+
+    private final OffHeapSymbols symbols;
+
+    private ByteBuffer index;
+    private int slots;
+    private int size;
+    private int usedSlots;
+
+    private ByteBuffer segment;
+    private int segmentInts;
+
+    /**
+     * Ints del segmento usados, incluyendo los de conjuntos reemplazados.
+     */
+    private int usedInts;
+
+    /**
+     * Ints del segmento que pertenecen a los conjuntos actuales.
+     */
+    private int liveInts;
+
+    OffHeapMapping(OffHeapSymbols symbols) {
+        this.symbols = symbols;
+        allocateIndex(MIN_SLOTS);
+        allocateSegment(MIN_SEGMENT_INTS);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        checkNotFreed();
+        int variable = symbols.variables.findId(key);
+        return variable >= 0 && findSlot(variable) >= 0;
+    }
+
+    @Override
+    public Set<Node> get(Object key) {
+        checkNotFreed();
+        int variable = symbols.variables.findId(key);
+        if (variable < 0) {
+            return null;
+        }
+        int slot = findSlot(variable);
+        return slot < 0 ? null : readSet(slot);
+    }
+
+    @Override
+    public Set<Node> put(String key, Set<Node> nodes) {
+        Set<Node> previous = get(key);
+        set(key, nodes);
+        return previous;
+    }
+
+    /**
+     * Same as {@link #put}, but the previous set is not read back (which would copy it into a new set).
+     */
+    void set(String key, Set<Node> nodes) {
+        checkNotFreed();
+        int variable = symbols.variables.getId(key);
+        int[] nodeIds = null;
+        if (nodes != null) {
+            // The ids are read before writing, in case the set was read from this same map.
+            nodeIds = new int[nodes.size()];
+            int i = 0;
+            for (Node node : nodes) {
+                nodeIds[i++] = symbols.nodes.getId(node);
+            }
+            Arrays.sort(nodeIds);
+        }
+
+        int slot = findSlot(variable);
+        if (slot >= 0) {
+            liveInts -= Math.max(0, index.getInt(slot * SLOT_BYTES + 8));
+            // The replaced set is not copied if appending compacts the segment.
+            index.putInt(slot * SLOT_BYTES + 8, 0);
+        } else {
+            slot = insertSlot(variable);
+        }
+        if (nodeIds == null) {
+            index.putInt(slot * SLOT_BYTES + 4, 0);
+            index.putInt(slot * SLOT_BYTES + 8, NULL_SET);
+        } else {
+            int offset = append(nodeIds);
+            index.putInt(slot * SLOT_BYTES + 4, offset);
+            index.putInt(slot * SLOT_BYTES + 8, nodeIds.length);
+        }
+    }
+
+    @Override
+    public Set<Node> remove(Object key) {
+        checkNotFreed();
+        int variable = symbols.variables.findId(key);
+        if (variable < 0) {
+            return null;
+        }
+        int slot = findSlot(variable);
+        if (slot < 0) {
+            return null;
+        }
+        Set<Node> previous = readSet(slot);
+        removeSlot(slot);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        checkNotFreed();
+        if (usedSlots > 0) {
+            OffHeapBuffers.release(index);
+            allocateIndex(MIN_SLOTS);
+        }
+        usedInts = liveInts = 0;
+    }
+
+    /**
+     * Replaces the variables of this mapping by the ones of <code>other</code>, copying its buffers. Both mappings
+     * must share their symbols.
+     */
+    void copyFrom(OffHeapMapping other) {
+        checkNotFreed();
+        other.checkNotFreed();
+        OffHeapBuffers.release(index);
+        OffHeapBuffers.release(segment);
+        index = copy(other.index, other.slots * SLOT_BYTES);
+        segment = copy(other.segment, other.usedInts * 4);
+        slots = other.slots;
+        size = other.size;
+        usedSlots = other.usedSlots;
+        segmentInts = segment.capacity() / 4;
+        usedInts = other.usedInts;
+        liveInts = other.liveInts;
+    }
+
+    /**
+     * Returns the buffers to the pool. The mapping cannot be used afterwards.
+     */
+    void free() {
+        if (index != null) {
+            OffHeapBuffers.release(index);
+            OffHeapBuffers.release(segment);
+            index = segment = null;
+            slots = size = usedSlots = segmentInts = usedInts = liveInts = 0;
+        }
+    }
+
+    @Override
+    public Set<Entry<String, Set<Node>>> entrySet() {
+        checkNotFreed();
+        return new AbstractSet<Entry<String, Set<Node>>>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<Entry<String, Set<Node>>> iterator() {
+                return new Iterator<Entry<String, Set<Node>>>() {
+                    private int nextSlot = advance(0);
+                    private int lastSlot = -1;
+
+                    private int advance(int slot) {
+                        while (slot < slots) {
+                            int key = index.getInt(slot * SLOT_BYTES);
+                            if (key != EMPTY && key != REMOVED) {
+                                break;
+                            }
+                            slot++;
+                        }
+                        return slot;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return nextSlot < slots;
+                    }
+
+                    @Override
+                    public Entry<String, Set<Node>> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        String variable = symbols.variables.get(index.getInt(nextSlot * SLOT_BYTES) - 1);
+                        Entry<String, Set<Node>> entry = new SimpleImmutableEntry<>(variable, readSet(nextSlot));
+                        lastSlot = nextSlot;
+                        nextSlot = advance(nextSlot + 1);
+                        return entry;
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (lastSlot < 0) {
+                            throw new IllegalStateException();
+                        }
+                        removeSlot(lastSlot);
+                        lastSlot = -1;
+                    }
+                };
+            }
+        };
+    }
+
+    private Set<Node> readSet(int slot) {
+        int offset = index.getInt(slot * SLOT_BYTES + 4);
+        int length = index.getInt(slot * SLOT_BYTES + 8);
+        if (length == NULL_SET) {
+            return null;
+        }
+        Set<Node> nodes = new HashSet<>();
+        for (int i = 0; i < length; i++) {
+            nodes.add(symbols.nodes.get(segment.getInt((offset + i) * 4)));
+        }
+        return Collections.unmodifiableSet(nodes);
+    }
+
+    /**
+     * Appends the node numbers to the segment and returns their offset. If the segment is full, the live sets are
+     * compacted into a new segment.
+     */
+    private int append(int[] nodeIds) {
+        if (usedInts + nodeIds.length > segmentInts) {
+            compact(Math.max(MIN_SEGMENT_INTS, (liveInts + nodeIds.length) * 2));
+        }
+        int offset = usedInts;
+        for (int i = 0; i < nodeIds.length; i++) {
+            segment.putInt((offset + i) * 4, nodeIds[i]);
+        }
+        usedInts += nodeIds.length;
+        liveInts += nodeIds.length;
+        return offset;
+    }
+
+    private void compact(int newSegmentInts) {
+        ByteBuffer oldSegment = segment;
+        allocateSegment(newSegmentInts);
+        for (int slot = 0; slot < slots; slot++) {
+            int key = index.getInt(slot * SLOT_BYTES);
+            int length = index.getInt(slot * SLOT_BYTES + 8);
+            if (key != EMPTY && key != REMOVED && length > 0) {
+                int offset = index.getInt(slot * SLOT_BYTES + 4);
+                for (int i = 0; i < length; i++) {
+                    segment.putInt((usedInts + i) * 4, oldSegment.getInt((offset + i) * 4));
+                }
+                index.putInt(slot * SLOT_BYTES + 4, usedInts);
+                usedInts += length;
+            }
+        }
+        OffHeapBuffers.release(oldSegment);
+    }
+
+    private int findSlot(int variable) {
+        checkNotFreed();
+        int slot = hash(variable) & (slots - 1);
+        while (true) {
+            int key = index.getInt(slot * SLOT_BYTES);
+            if (key == EMPTY) {
+                return -1;
+            } else if (key == variable + 1) {
+                return slot;
+            }
+            slot = (slot + 1) & (slots - 1);
+        }
+    }
+
+    /**
+     * Inserts a variable that is not in the index and returns its slot.
+     */
+    private int insertSlot(int variable) {
+        if ((usedSlots + 1) * 2 > slots) {
+            rehash(size * 4 >= slots ? slots * 2 : slots);
+        }
+        int slot = hash(variable) & (slots - 1);
+        while (true) {
+            int key = index.getInt(slot * SLOT_BYTES);
+            if (key == EMPTY || key == REMOVED) {
+                break;
+            }
+            slot = (slot + 1) & (slots - 1);
+        }
+        if (index.getInt(slot * SLOT_BYTES) == EMPTY) {
+            usedSlots++;
+        }
+        index.putInt(slot * SLOT_BYTES, variable + 1);
+        index.putInt(slot * SLOT_BYTES + 4, 0);
+        index.putInt(slot * SLOT_BYTES + 8, 0);
+        size++;
+        return slot;
+    }
+
+    private void removeSlot(int slot) {
+        liveInts -= Math.max(0, index.getInt(slot * SLOT_BYTES + 8));
+        index.putInt(slot * SLOT_BYTES, REMOVED);
+        size--;
+    }
+
+    private void rehash(int newSlots) {
+        ByteBuffer oldIndex = index;
+        int oldSlots = slots;
+        allocateIndex(newSlots);
+        for (int slot = 0; slot < oldSlots; slot++) {
+            int key = oldIndex.getInt(slot * SLOT_BYTES);
+            if (key != EMPTY && key != REMOVED) {
+                int newSlot = insertSlot(key - 1);
+                index.putInt(newSlot * SLOT_BYTES + 4, oldIndex.getInt(slot * SLOT_BYTES + 4));
+                index.putInt(newSlot * SLOT_BYTES + 8, oldIndex.getInt(slot * SLOT_BYTES + 8));
+            }
+        }
+        OffHeapBuffers.release(oldIndex);
+    }
+
+    private void allocateIndex(int newSlots) {
+        index = OffHeapBuffers.allocate(newSlots * SLOT_BYTES);
+        slots = newSlots;
+        size = 0;
+        usedSlots = 0;
+    }
+
+    private void allocateSegment(int ints) {
+        segment = OffHeapBuffers.allocate(ints * 4);
+        segmentInts = segment.capacity() / 4;
+        usedInts = 0;
+    }
+
+    private static ByteBuffer copy(ByteBuffer source, int bytes) {
+        ByteBuffer copy = OffHeapBuffers.allocate(bytes);
+        ByteBuffer from = source.duplicate();
+        from.clear().limit(bytes);
+        ByteBuffer to = copy.duplicate();
+        to.clear();
+        to.put(from);
+        return copy;
+    }
+
+    private void checkNotFreed() {
+        if (index == null) {
+            throw new IllegalStateException("The graph was freed");
+        }
+    }
+
+    private static int hash(int variable) {
+        int hash = variable * 0x9E3779B1;
+        return hash ^ (hash >>> 16);
+    }
+}
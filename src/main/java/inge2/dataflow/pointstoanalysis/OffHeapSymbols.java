@@ -0,0 +1,15 @@
+package inge2.dataflow.pointstoanalysis;
+
+/**
+ * Numbers of the nodes, fields and variables of the off-heap graphs of one analysis.
+ *
+ * Graphs that share the numbers are copied and compared buffer to buffer; graphs with different numbers go through
+ * {@link Axis} objects instead. The numbers live as long as the analysis that created them, so a long-running
+ * process (e.g. the analysis server) does not keep the symbols of methods it analysed long ago.
+ */
+final class OffHeapSymbols {
+
+    final SymbolTable<Node> nodes = new SymbolTable<>();
+    final SymbolTable<String> fields = new SymbolTable<>();
+    final SymbolTable<String> variables = new SymbolTable<>();
+}
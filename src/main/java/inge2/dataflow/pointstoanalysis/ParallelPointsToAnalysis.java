@@ -0,0 +1,369 @@
+package inge2.dataflow.pointstoanalysis;
+
+import soot.Unit;
+import soot.toolkits.graph.PseudoTopologicalOrderer;
+import soot.toolkits.graph.StronglyConnectedComponentsFast;
+import soot.toolkits.graph.UnitGraph;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Version of {@link PointsToAnalysis} that solves independent parts of the method in parallel.
+ *
+ * The control flow graph is split into its strongly connected components (a loop, or a single unit outside of
+ * loops), and chains of components with a single entry and a single exit are grouped into regions. A region is
+ * solved on a fork-join pool as soon as every region before it is solved, so the branches of the method that only
+ * meet at a join point are solved concurrently. The inputs of a region are final when it starts, and each loop is
+ * iterated until its graphs do not change, so the result is the same fixpoint that {@link PointsToAnalysis} computes.
+ */
+public class ParallelPointsToAnalysis implements PointsToQueries {
+
+    private final UnitGraph graph;
+    private final PointsToConfig config;
+
+    /**
+     * Numeracion de los grafos off-heap de este analisis.
+     */
+    private final OffHeapSymbols symbols = new OffHeapSymbols();
+    private final StrongUpdates strongUpdates;
+    private final CallSites callSites;
+
+    /**
+     * Grafo despues de cada unidad alcanzable. Lo escriben varios threads, pero cada unidad pertenece a una sola
+     * region y sus sucesores en otras regiones solo la leen cuando la region termino.
+     */
+    private final Map<Unit, PointsToGraph> unitToAfterFlow = new ConcurrentHashMap<>();
+
+    private final Map<Unit, Integer> order = new HashMap<>();
+
+    private final AtomicInteger flowThroughCount = new AtomicInteger();
+
+    /**
+     * Stores whose last evaluation was a strong update.
+     */
+    private final Set<Unit> strongStores = ConcurrentHashMap.newKeySet();
+
+    private int regionCount;
+
+    private PointsToGraph lastPointsToGraph;
+
+    public ParallelPointsToAnalysis(UnitGraph graph) {
+        this(graph, new PointsToConfig());
+    }
+
+    public ParallelPointsToAnalysis(UnitGraph graph, PointsToConfig config) {
+        this(graph, config, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param graph the control flow graph of the method.
+     * @param config the options of the analysis.
+     * @param pool the pool the regions are solved on.
+     */
+    public ParallelPointsToAnalysis(UnitGraph graph, PointsToConfig config, ForkJoinPool pool) {
+        this.graph = graph;
+        this.config = config;
+        this.strongUpdates = config.isStrongUpdates() ? new StrongUpdates(graph, config.getHeapAbstraction()) : null;
+        this.callSites = new CallSites(graph);
+
+        List<Region> regions = buildRegions();
+        regionCount = regions.size();
+        pool.invoke(new RootTask(regions));
+
+        // The graph at the end of the method is the union of the graphs after each exit of the method.
+        lastPointsToGraph = new PointsToGraph(config.getStorage(), symbols);
+        for (Unit tail : graph.getTails()) {
+            PointsToGraph tailOut = unitToAfterFlow.get(tail);
+            if (tailOut != null) {
+                lastPointsToGraph.union(tailOut);
+            }
+        }
+    }
+
+    public PointsToConfig getConfig() {
+        return config;
+    }
+
+    public PointsToGraph getLastPointsToGraph() {
+        return lastPointsToGraph;
+    }
+
+    /**
+     * Returns the graph after a unit; like {@link PointsToAnalysis#getFlowAfter}, it is empty for the units that
+     * cannot be reached from the heads of the graph.
+     */
+    public PointsToGraph getFlowAfter(Unit unit) {
+        PointsToGraph flow = unitToAfterFlow.get(unit);
+        return flow != null ? flow : new PointsToGraph(config.getStorage(), symbols);
+    }
+
+    /**
+     * Frees the graph after each unit, keeping only the graph at the end of the method.
+     * {@link #getFlowAfter} cannot be used afterwards.
+     */
+    public void freeFlows() {
+        for (PointsToGraph flow : unitToAfterFlow.values()) {
+            flow.free();
+        }
+        unitToAfterFlow.clear();
+    }
+
+    /**
+     * Returns how many times a unit was analysed until the fixpoint was reached.
+     */
+    public int getFlowThroughCount() {
+        return flowThroughCount.get();
+    }
+
+    /**
+     * Returns how many stores replaced the earlier targets of their field in the final graphs.
+     */
+    public int getStrongUpdateCount() {
+        return strongStores.size();
+    }
+
+    /**
+     * Returns how many regions the control flow graph was split into.
+     */
+    public int getRegionCount() {
+        return regionCount;
+    }
+
+    /**
+     * Splits the units reachable from the heads into regions and links each region to the ones after it.
+     * @return the regions, in topological order.
+     */
+    private List<Region> buildRegions() {
+        Set<Unit> reachable = new HashSet<>();
+        for (Unit unit : new PseudoTopologicalOrderer<Unit>().newList(graph, false)) {
+            order.put(unit, order.size());
+        }
+        Deque<Unit> worklist = new ArrayDeque<>(graph.getHeads());
+        while (!worklist.isEmpty()) {
+            Unit unit = worklist.pop();
+            if (reachable.add(unit)) {
+                worklist.addAll(graph.getSuccsOf(unit));
+            }
+        }
+
+        // Components of the reachable units, sorted by their first unit in pseudo-topological order.
+        List<List<Unit>> components = new ArrayList<>();
+        for (List<Unit> component : new StronglyConnectedComponentsFast<>(graph).getComponents()) {
+            if (reachable.contains(component.get(0))) {
+                List<Unit> sorted = new ArrayList<>(component);
+                sorted.sort(Comparator.comparing(order::get));
+                components.add(sorted);
+            }
+        }
+        components.sort(Comparator.comparing(component -> order.get(component.get(0))));
+        Map<Unit, Integer> unitToComponent = new HashMap<>();
+        for (int c = 0; c < components.size(); c++) {
+            for (Unit unit : components.get(c)) {
+                unitToComponent.put(unit, c);
+            }
+        }
+        List<Set<Integer>> componentSuccs = new ArrayList<>();
+        List<Set<Integer>> componentPreds = new ArrayList<>();
+        for (int c = 0; c < components.size(); c++) {
+            componentSuccs.add(new LinkedHashSet<>());
+            componentPreds.add(new LinkedHashSet<>());
+        }
+        for (int c = 0; c < components.size(); c++) {
+            for (Unit unit : components.get(c)) {
+                for (Unit succ : graph.getSuccsOf(unit)) {
+                    int succComponent = unitToComponent.get(succ);
+                    if (succComponent != c) {
+                        componentSuccs.get(c).add(succComponent);
+                        componentPreds.get(succComponent).add(c);
+                    }
+                }
+            }
+        }
+
+        // A component continues the region of its predecessor if it is its only predecessor and only successor.
+        List<Region> regions = new ArrayList<>();
+        Region[] componentToRegion = new Region[components.size()];
+        for (int c = 0; c < components.size(); c++) {
+            Set<Integer> preds = componentPreds.get(c);
+            Region region = null;
+            if (preds.size() == 1) {
+                int pred = preds.iterator().next();
+                if (componentSuccs.get(pred).size() == 1) {
+                    region = componentToRegion[pred];
+                }
+            }
+            if (region == null) {
+                region = new Region();
+                regions.add(region);
+            }
+            region.components.add(components.get(c));
+            componentToRegion[c] = region;
+        }
+        for (int c = 0; c < components.size(); c++) {
+            for (int succ : componentSuccs.get(c)) {
+                Region region = componentToRegion[c];
+                Region succRegion = componentToRegion[succ];
+                if (region != succRegion && region.succs.add(succRegion)) {
+                    succRegion.pendingPreds.incrementAndGet();
+                }
+            }
+        }
+        return regions;
+    }
+
+    private void solve(Region region) {
+        for (List<Unit> component : region.components) {
+            solve(component);
+        }
+    }
+
+    /**
+     * Iterates the units of a component until their graphs do not change. The graphs of the predecessors outside
+     * of the component are already final.
+     */
+    private void solve(List<Unit> component) {
+        Unit first = component.get(0);
+        if (component.size() == 1 && !graph.getSuccsOf(first).contains(first)) {
+            unitToAfterFlow.put(first, flowThrough(first));
+            return;
+        }
+
+        Set<Unit> units = new HashSet<>(component);
+        PriorityQueue<Unit> worklist = new PriorityQueue<>(Comparator.comparing(order::get));
+        worklist.addAll(component);
+        Set<Unit> queued = new HashSet<>(component);
+        while (!worklist.isEmpty()) {
+            Unit unit = worklist.poll();
+            queued.remove(unit);
+            PointsToGraph out = flowThrough(unit);
+            PointsToGraph previous = unitToAfterFlow.get(unit);
+            if (out.equals(previous)) {
+                out.free();
+            } else {
+                unitToAfterFlow.put(unit, out);
+                if (previous != null) {
+                    previous.free();
+                }
+                for (Unit succ : graph.getSuccsOf(unit)) {
+                    if (units.contains(succ) && queued.add(succ)) {
+                        worklist.add(succ);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Same flow function as {@link PointsToAnalysis}, applied to the union of the graphs after the predecessors.
+     */
+    private PointsToGraph flowThrough(Unit unit) {
+        flowThroughCount.incrementAndGet();
+        PointsToGraph out = new PointsToGraph(config.getStorage(), symbols);
+        for (Unit pred : graph.getPredsOf(unit)) {
+            PointsToGraph predOut = unitToAfterFlow.get(pred);
+            if (predOut != null) {
+                out.union(predOut);
+            }
+        }
+
+        PointsToVisitor visitor = new PointsToVisitor(out, config, strongUpdates, callSites);
+        unit.apply(visitor);
+        if (visitor.wasStrongUpdate()) {
+            strongStores.add(unit);
+        } else {
+            strongStores.remove(unit);
+        }
+        return out;
+    }
+
+    @Override
+    public Set<Node> getNodesForVariable(String variableName) {
+        return lastPointsToGraph.getNodesForVariable(variableName);
+    }
+
+    @Override
+    public boolean mayAlias(String leftVariableName, String rightVariableName) {
+        Set<Node> nX = lastPointsToGraph.getNodesForVariable(leftVariableName);
+        Set<Node> nY = lastPointsToGraph.getNodesForVariable(rightVariableName);
+        return nX != null && nY != null && !Collections.disjoint(nX, nY);
+    }
+
+    @Override
+    public boolean mayAlias(String leftVariableName, String fieldName, String rightVariableName) {
+        Set<Node> nX = lastPointsToGraph.getNodesForVariable(leftVariableName);
+        Set<Node> nY = lastPointsToGraph.getNodesForVariable(rightVariableName);
+        if (nX == null || nY == null) {
+            return false;
+        }
+        Set<Node> n = new HashSet<>();
+        for (Node node : nX) {
+            n.addAll(lastPointsToGraph.getReachableNodesByField(node, fieldName));
+        }
+        return !Collections.disjoint(n, nY);
+    }
+
+    /**
+     * A chain of components that are solved one after the other on the same thread.
+     */
+    private static final class Region {
+        private final List<List<Unit>> components = new ArrayList<>();
+        private final Set<Region> succs = new LinkedHashSet<>();
+        private final AtomicInteger pendingPreds = new AtomicInteger();
+    }
+
+    /**
+     * Forks the regions without predecessors and completes when every region is solved.
+     */
+    private final class RootTask extends CountedCompleter<Void> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Region> regions;
+
+        private RootTask(List<Region> regions) {
+            this.regions = regions;
+        }
+
+        @Override
+        public void compute() {
+            for (Region region : regions) {
+                if (region.pendingPreds.get() == 0) {
+                    addToPendingCount(1);
+                    new RegionTask(this, region).fork();
+                }
+            }
+            tryComplete();
+        }
+    }
+
+    /**
+     * Solves a region and forks the regions whose last pending predecessor it was.
+     */
+    private final class RegionTask extends CountedCompleter<Void> {
+        private static final long serialVersionUID = 1L;
+
+        private final RootTask root;
+        private final Region region;
+
+        private RegionTask(RootTask root, Region region) {
+            super(root);
+            this.root = root;
+            this.region = region;
+        }
+
+        @Override
+        public void compute() {
+            solve(region);
+            for (Region succ : region.succs) {
+                if (succ.pendingPreds.decrementAndGet() == 0) {
+                    root.addToPendingCount(1);
+                    new RegionTask(root, succ).fork();
+                }
+            }
+            tryComplete();
+        }
+    }
+}
@@ -4,22 +4,81 @@ import soot.Unit;
 import soot.toolkits.graph.UnitGraph;
 import soot.toolkits.scalar.ForwardFlowAnalysis;
 
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Set;
 
-public class PointsToAnalysis extends ForwardFlowAnalysis<Unit, PointsToGraph> {
+public class PointsToAnalysis extends ForwardFlowAnalysis<Unit, PointsToGraph> implements PointsToQueries {
+
+    private final PointsToConfig config;
+
+    /**
+     * Numeracion de los grafos off-heap de este analisis.
+     */
+    private final OffHeapSymbols symbols = new OffHeapSymbols();
+
+    private final StrongUpdates strongUpdates;
+    private final CallSites callSites;
+
+    /**
+     * Stores whose last evaluation was a strong update.
+     */
+    private final Set<Unit> strongStores = new HashSet<>();
 
     private PointsToGraph lastPointsToGraph;
 
+    private int flowThroughCount;
+    private int mergeCount;
+
     public PointsToAnalysis(UnitGraph graph) {
+        this(graph, new PointsToConfig());
+    }
+
+    public PointsToAnalysis(UnitGraph graph, PointsToConfig config) {
         super(graph);
+        this.config = config;
+        this.strongUpdates = config.isStrongUpdates() ? new StrongUpdates(graph, config.getHeapAbstraction()) : null;
+        this.callSites = new CallSites(graph);
         doAnalysis();
+
+        // The graph at the end of the method is the union of the graphs after each exit of the method.
+        lastPointsToGraph = newInitialFlow();
+        for (Unit tail : graph.getTails()) {
+            lastPointsToGraph.union(getFlowAfter(tail));
+        }
+    }
+
+    public PointsToConfig getConfig() {
+        return config;
     }
 
     public PointsToGraph getLastPointsToGraph() {
         return lastPointsToGraph;
     }
 
+    /**
+     * Returns how many times a unit was analysed until the fixpoint was reached.
+     */
+    public int getFlowThroughCount() {
+        return flowThroughCount;
+    }
+
+    /**
+     * Returns how many stores replaced the earlier targets of their field in the final graphs
+     * (always 0 without the "strong-updates" option).
+     */
+    public int getStrongUpdateCount() {
+        return strongStores.size();
+    }
+
+    /**
+     * Returns how many times two flows were merged at a unit with several predecessors.
+     */
+    public int getMergeCount() {
+        return mergeCount;
+    }
+
     /**
      * This method is called for each unit in the control flow graph.
      * @param in the input flow
@@ -28,17 +87,37 @@ public class PointsToAnalysis extends ForwardFlowAnalysis<Unit, PointsToGraph> {
      */
     @Override
     protected void flowThrough(PointsToGraph in, Unit unit, PointsToGraph out) {
+        flowThroughCount++;
         out.copy(in);
 
-        PointsToVisitor visitor = new PointsToVisitor(out);
+        PointsToVisitor visitor = new PointsToVisitor(out, config, strongUpdates, callSites);
         unit.apply(visitor);
-
-        this.lastPointsToGraph = out;
+        if (visitor.wasStrongUpdate()) {
+            strongStores.add(unit);
+        } else {
+            strongStores.remove(unit);
+        }
     }
 
     @Override
     protected PointsToGraph newInitialFlow() {
-        return new PointsToGraph();
+        return new PointsToGraph(config.getStorage(), symbols);
+    }
+
+    /**
+     * Frees the graphs before and after each unit, keeping only the graph at the end of the method.
+     * With off-heap storage, this gives their memory back once the fixpoint is no longer needed;
+     * {@link #getFlowBefore} and {@link #getFlowAfter} cannot be used afterwards.
+     */
+    public void freeFlows() {
+        Set<PointsToGraph> flows = Collections.newSetFromMap(new IdentityHashMap<>());
+        flows.addAll(unitToBeforeFlow.values());
+        flows.addAll(unitToAfterFlow.values());
+        for (PointsToGraph flow : flows) {
+            flow.free();
+        }
+        unitToBeforeFlow.clear();
+        unitToAfterFlow.clear();
     }
 
     /**
@@ -49,6 +128,7 @@ public class PointsToAnalysis extends ForwardFlowAnalysis<Unit, PointsToGraph> {
      */
     @Override
     protected void merge(PointsToGraph input1, PointsToGraph input2, PointsToGraph output) {
+        mergeCount++;
         output.copy(input1);
         output.union(input2);
     }
@@ -58,12 +138,27 @@ public class PointsToAnalysis extends ForwardFlowAnalysis<Unit, PointsToGraph> {
         dest.copy(source);
     }
 
+    @Override
+    public Set<Node> getNodesForVariable(String variableName) {
+        return lastPointsToGraph.getNodesForVariable(variableName);
+    }
+
+    /**
+     * Retorna los objetos a los que apunta la variable y todos los alcanzables desde ellos al final del metodo.
+     * @param variableName
+     * @return
+     */
+    public Set<Node> getReachableNodes(String variableName) {
+        return lastPointsToGraph.getReachableNodesForVariable(variableName);
+    }
+
     /**
      * Retorna true si alguno de los objetos apuntados por leftVariableName y rightVariableName coinciden.
      * @param leftVariableName
      * @param rightVariableName
      * @return
      */
+    @Override
     public boolean mayAlias(String leftVariableName, String rightVariableName) {
         Set<Node> nX = lastPointsToGraph.getNodesForVariable(leftVariableName);
         Set<Node> nY = lastPointsToGraph.getNodesForVariable(rightVariableName);
@@ -84,6 +179,7 @@ public class PointsToAnalysis extends ForwardFlowAnalysis<Unit, PointsToGraph> {
      * @param rightVariableName
      * @return
      */
+    @Override
     public boolean mayAlias(String leftVariableName, String fieldName, String rightVariableName) {
         Set<Node> nX = lastPointsToGraph.getNodesForVariable(leftVariableName);
         Set<Node> n = new HashSet<Node>();
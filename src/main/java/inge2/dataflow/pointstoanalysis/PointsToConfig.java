@@ -0,0 +1,220 @@
+package inge2.dataflow.pointstoanalysis;
+
+import soot.RefType;
+import soot.SootMethod;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Options of the points-to analysis.
+ *
+ * The options can be given as Soot phase options of the points-to transform, e.g.
+ * <code>-p jtp.PointsToAnalysis heap-abstraction:type,type-filter:true</code>.
+ */
+public class PointsToConfig {
+
+    /**
+     * Phase options understood by {@link #fromPhaseOptions(Map)}.
+     */
+    public static final String DECLARED_PHASE_OPTIONS = "enabled heap-abstraction type-groups type-filter demand-driven incremental parallel methods cfg storage strong-updates calls";
+
+    public static final String DEFAULT_PHASE_OPTIONS = "enabled:false heap-abstraction:alloc-site type-filter:false demand-driven:false incremental:false parallel:false methods:entryPoint cfg:exceptional storage:heap strong-updates:false calls:fresh";
+
+    private HeapAbstraction heapAbstraction = new AllocationSiteAbstraction();
+    private boolean typeFilter = false;
+    private boolean demandDriven = false;
+    private boolean incremental = false;
+    private boolean parallel = false;
+    private Pattern methods = Pattern.compile("entryPoint");
+    private CfgKind cfg = CfgKind.EXCEPTIONAL;
+    private GraphStorage storage = GraphStorage.HEAP;
+    private boolean strongUpdates = false;
+    private CallModel calls = CallModel.FRESH;
+
+    public HeapAbstraction getHeapAbstraction() {
+        return heapAbstraction;
+    }
+
+    public PointsToConfig setHeapAbstraction(HeapAbstraction heapAbstraction) {
+        this.heapAbstraction = heapAbstraction;
+        return this;
+    }
+
+    /**
+     * If true, copies and loads only keep the nodes whose type is compatible with the declared type of the
+     * assigned variable.
+     */
+    public boolean isTypeFilter() {
+        return typeFilter;
+    }
+
+    public PointsToConfig setTypeFilter(boolean typeFilter) {
+        this.typeFilter = typeFilter;
+        return this;
+    }
+
+    /**
+     * If true, queries are answered by {@link DemandDrivenPointsTo} instead of running {@link PointsToAnalysis}
+     * over the whole method.
+     */
+    public boolean isDemandDriven() {
+        return demandDriven;
+    }
+
+    public PointsToConfig setDemandDriven(boolean demandDriven) {
+        this.demandDriven = demandDriven;
+        return this;
+    }
+
+    /**
+     * If true, the analysis is run with {@link IncrementalPointsToAnalysis}, which keeps the graph of every unit
+     * so that it can be updated after the body is edited.
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public PointsToConfig setIncremental(boolean incremental) {
+        this.incremental = incremental;
+        return this;
+    }
+
+    /**
+     * If true, the analysis is run with {@link ParallelPointsToAnalysis}, which solves the independent regions of
+     * the control flow graph concurrently.
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    public PointsToConfig setParallel(boolean parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    /**
+     * Regular expression that selects the analysed methods by name or by signature.
+     */
+    public Pattern getMethods() {
+        return methods;
+    }
+
+    public PointsToConfig setMethods(Pattern methods) {
+        this.methods = methods;
+        return this;
+    }
+
+    /**
+     * Control flow graph the analysis runs on.
+     */
+    public CfgKind getCfg() {
+        return cfg;
+    }
+
+    public PointsToConfig setCfg(CfgKind cfg) {
+        this.cfg = cfg;
+        return this;
+    }
+
+    /**
+     * Storage of the graphs created by the analysis.
+     */
+    public GraphStorage getStorage() {
+        return storage;
+    }
+
+    public PointsToConfig setStorage(GraphStorage storage) {
+        this.storage = storage;
+        return this;
+    }
+
+    /**
+     * If true, a store <code>x.f = y</code> replaces the targets of <code>x.f</code> when x points to a single
+     * object (see {@link StrongUpdates}); otherwise every store only adds edges.
+     */
+    public boolean isStrongUpdates() {
+        return strongUpdates;
+    }
+
+    public PointsToConfig setStrongUpdates(boolean strongUpdates) {
+        this.strongUpdates = strongUpdates;
+        return this;
+    }
+
+    /**
+     * How the calls of the method are modelled.
+     */
+    public CallModel getCalls() {
+        return calls;
+    }
+
+    public PointsToConfig setCalls(CallModel calls) {
+        this.calls = calls;
+        return this;
+    }
+
+    /**
+     * Returns true if the method is selected by {@link #getMethods()}.
+     */
+    public boolean isAnalyzed(SootMethod method) {
+        return methods.matcher(method.getName()).matches() || methods.matcher(method.getSignature()).matches();
+    }
+
+    /**
+     * Builds a configuration from the Soot phase options of the points-to transform.
+     * <ul>
+     *     <li><code>heap-abstraction</code>: <code>alloc-site</code> (default) or <code>type</code>.</li>
+     *     <li><code>type-groups</code>: ';' separated list of class names used as group roots by the
+     *     <code>type</code> abstraction.</li>
+     *     <li><code>type-filter</code>: <code>true</code> or <code>false</code> (default).</li>
+     *     <li><code>demand-driven</code>: <code>true</code> or <code>false</code> (default).</li>
+     *     <li><code>incremental</code>: <code>true</code> or <code>false</code> (default).</li>
+     *     <li><code>parallel</code>: <code>true</code> or <code>false</code> (default).</li>
+     *     <li><code>methods</code>: regular expression for the names or signatures of the analysed methods,
+     *     <code>entryPoint</code> by default. It cannot contain ',' because Soot splits phase options on it.</li>
+     *     <li><code>cfg</code>: <code>exceptional</code> (default), <code>brief</code> or <code>pruned</code>.
+     *     See {@link CfgKind}.</li>
+     *     <li><code>storage</code>: <code>heap</code> (default) or <code>off-heap</code>. See {@link GraphStorage}.</li>
+     *     <li><code>strong-updates</code>: <code>true</code> or <code>false</code> (default).</li>
+     *     <li><code>calls</code>: <code>fresh</code> (default) or <code>conservative</code>. See {@link CallModel}.</li>
+     * </ul>
+     * @param options the phase options.
+     * @return the configuration.
+     */
+    public static PointsToConfig fromPhaseOptions(Map<String, String> options) {
+        PointsToConfig config = new PointsToConfig();
+
+        String heapAbstraction = options.getOrDefault("heap-abstraction", "alloc-site");
+        if ("alloc-site".equals(heapAbstraction)) {
+            config.setHeapAbstraction(new AllocationSiteAbstraction());
+        } else if ("type".equals(heapAbstraction)) {
+            config.setHeapAbstraction(new TypeAbstraction(parseTypeGroups(options.getOrDefault("type-groups", ""))));
+        } else {
+            throw new IllegalArgumentException("Unknown heap-abstraction: " + heapAbstraction);
+        }
+
+        config.setTypeFilter(Boolean.parseBoolean(options.getOrDefault("type-filter", "false")));
+        config.setDemandDriven(Boolean.parseBoolean(options.getOrDefault("demand-driven", "false")));
+        config.setIncremental(Boolean.parseBoolean(options.getOrDefault("incremental", "false")));
+        config.setParallel(Boolean.parseBoolean(options.getOrDefault("parallel", "false")));
+        config.setMethods(Pattern.compile(options.getOrDefault("methods", "entryPoint")));
+        config.setCfg(CfgKind.fromOption(options.getOrDefault("cfg", "exceptional")));
+        config.setStorage(GraphStorage.fromOption(options.getOrDefault("storage", "heap")));
+        config.setStrongUpdates(Boolean.parseBoolean(options.getOrDefault("strong-updates", "false")));
+        config.setCalls(CallModel.fromOption(options.getOrDefault("calls", "fresh")));
+        return config;
+    }
+
+    private static List<RefType> parseTypeGroups(String typeGroups) {
+        List<RefType> roots = new ArrayList<>();
+        for (String className : typeGroups.split(";")) {
+            if (!className.trim().isEmpty()) {
+                roots.add(RefType.v(className.trim()));
+            }
+        }
+        return roots;
+    }
+}
@@ -2,7 +2,6 @@ package inge2.dataflow.pointstoanalysis;
 
 import soot.Unit;
 import soot.jimple.AssignStmt;
-import soot.tagkit.LineNumberTag;
 
 import java.util.*;
 
@@ -30,16 +29,77 @@ public class PointsToGraph {
      */
     public Map<String, Set<Node>> mapping;
 
+    /**
+     * Campo con el que se modelan los elementos de un arreglo: <code>a[i] = y</code> agrega los ejes
+     * (a, [], y) para todo i.
+     */
+    public static final String ARRAY_FIELD = "[]";
+
+    /**
+     * Clausuras transitivas ya calculadas, por conjunto de campos. La clave null considera todos los campos; no se
+     * usa un conjunto como clave porque seria igual al conjunto vacio de campos.
+     * Se actualizan al agregar ejes con {@link #addEdge} o {@link #union}.
+     */
+    private final Map<Set<String>, HeapReachability> reachability = new HashMap<>();
+
+    private final GraphStorage storage;
+
+    /**
+     * Numeracion de los nodos, campos y variables off-heap, o null si el grafo esta en el heap.
+     */
+    private final OffHeapSymbols symbols;
+
     public PointsToGraph(){
+        this(GraphStorage.HEAP);
+    }
+
+    /**
+     * @param storage where the edges and the mapping are kept. The nodes are always kept in a {@link HashSet}.
+     */
+    public PointsToGraph(GraphStorage storage) {
+        this(storage, storage == GraphStorage.OFF_HEAP ? new OffHeapSymbols() : null);
+    }
+
+    /**
+     * @param symbols numbering shared with the other off-heap graphs of the analysis, so copies between them are
+     *                buffer copies. Ignored if the graph is in the heap.
+     */
+    PointsToGraph(GraphStorage storage, OffHeapSymbols symbols) {
+        this.storage = storage;
         nodes = new HashSet<>();
-        axis = new HashSet<>();
-        mapping = new HashMap<>();
+        if (storage == GraphStorage.OFF_HEAP) {
+            this.symbols = symbols;
+            axis = new OffHeapAxisSet(symbols);
+            mapping = new OffHeapMapping(symbols);
+        } else {
+            this.symbols = null;
+            axis = new HashSet<>();
+            mapping = new HashMap<>();
+        }
+    }
+
+    public GraphStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Libera la memoria off-heap del grafo. El grafo no puede usarse despues; no hace nada si el grafo esta en el heap.
+     */
+    public void free() {
+        if (axis instanceof OffHeapAxisSet) {
+            ((OffHeapAxisSet) axis).free();
+        }
+        if (mapping instanceof OffHeapMapping) {
+            ((OffHeapMapping) mapping).free();
+        }
+        reachability.clear();
     }
 
     public void clear() {
         nodes.clear();
         axis.clear();
         mapping.clear();
+        reachability.clear();
     }
 
     /**
@@ -48,8 +108,7 @@ public class PointsToGraph {
      * @return
      */
     public Node getNodeName(AssignStmt stmt) {
-        LineNumberTag lineNumberTag = (LineNumberTag) stmt.getTag("LineNumberTag");
-        return new Node(String.valueOf(lineNumberTag.getLineNumber()));
+        return new AllocationSiteAbstraction().getNode(stmt);
     }
 
     /**
@@ -67,7 +126,7 @@ public class PointsToGraph {
      * @param nodes
      */
     public void setNodesForVariable(String variableName, Set<Node> nodes) {
-        mapping.put(variableName,nodes);
+        putMapping(variableName, nodes);
         this.nodes.addAll(nodes);
     }
 
@@ -79,7 +138,21 @@ public class PointsToGraph {
      */
     public void addEdge(Node leftNode, String fieldName, Node rightNode) {
         Axis a = new Axis(leftNode,fieldName,rightNode);
-        this.axis.add(a);
+        if (this.axis.add(a)) {
+            edgeAdded(a);
+        }
+    }
+
+    /**
+     * Elimina los ejes del campo <code>fieldName</code> que salen del nodo <code>node</code> (strong update).
+     * @param node
+     * @param fieldName
+     */
+    public void removeEdges(Node node, String fieldName) {
+        if (this.axis.removeIf(a -> a.leftNode.equals(node) && a.fieldName.equals(fieldName))) {
+            // Las clausuras solo se actualizan al agregar ejes.
+            reachability.clear();
+        }
     }
 
     /**
@@ -89,6 +162,9 @@ public class PointsToGraph {
      * @return
      */
     public Set<Node> getReachableNodesByField(Node node, String fieldName) {
+        if (axis instanceof OffHeapAxisSet) {
+            return ((OffHeapAxisSet) axis).getTargets(node, fieldName);
+        }
         Set<Node> tmp = new HashSet<Node>();
         for (Axis a : this.axis){
             if(a.fieldName.equals(fieldName) && a.leftNode.equals(node)){
@@ -98,11 +174,79 @@ public class PointsToGraph {
         return tmp;
     }
 
+    /**
+     * Devuelve el conjunto de nodos alcanzables desde el nodo <code>node</code> siguiendo uno o mas ejes.
+     * El propio nodo solo se incluye si esta en un ciclo.
+     * @param node
+     * @return
+     */
+    public Set<Node> getReachableNodes(Node node) {
+        return getReachability(null).getReachableNodes(node);
+    }
+
+    /**
+     * Devuelve el conjunto de nodos alcanzables desde el nodo <code>node</code> siguiendo uno o mas ejes cuyos
+     * campos estan en <code>fieldNames</code>.
+     * @param node
+     * @param fieldNames
+     * @return
+     */
+    public Set<Node> getReachableNodes(Node node, Set<String> fieldNames) {
+        return getReachability(new HashSet<>(fieldNames)).getReachableNodes(node);
+    }
+
+    /**
+     * Devuelve los objetos a los que apunta la variable <code>variableName</code> y todos los alcanzables desde ellos.
+     * @param variableName
+     * @return
+     */
+    public Set<Node> getReachableNodesForVariable(String variableName) {
+        Set<Node> result = new HashSet<>();
+        Set<Node> nodes = getNodesForVariable(variableName);
+        if (nodes != null) {
+            for (Node node : nodes) {
+                result.add(node);
+                result.addAll(getReachableNodes(node));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Devuelve la clausura para el conjunto de campos (null para todos), calculandola si no existe o si los ejes fueron modificados
+     * directamente sobre {@link #axis}.
+     */
+    private HeapReachability getReachability(Set<String> fieldNames) {
+        HeapReachability closure = reachability.get(fieldNames);
+        if (closure == null || closure.getGraphEdgeCount() != axis.size()) {
+            closure = new HeapReachability(this, fieldNames);
+            reachability.put(fieldNames, closure);
+        }
+        return closure;
+    }
+
+    private void edgeAdded(Axis a) {
+        for (HeapReachability closure : reachability.values()) {
+            closure.edgeAdded(a.leftNode, a.fieldName, a.rightNode);
+        }
+    }
+
     /**
      * Copia de un grafo (modifica el this).
      * @param in
      */
     public void copy(PointsToGraph in) {
+        if (this.symbols != null && this.symbols == in.symbols && this.axis instanceof OffHeapAxisSet
+                && in.axis instanceof OffHeapAxisSet && this.mapping instanceof OffHeapMapping
+                && in.mapping instanceof OffHeapMapping) {
+            // Both graphs are off-heap with the same numbering: copy the buffers instead of adding the edges one by one.
+            this.reachability.clear();
+            this.nodes.clear();
+            this.nodes.addAll(in.nodes);
+            ((OffHeapAxisSet) this.axis).copyFrom((OffHeapAxisSet) in.axis);
+            ((OffHeapMapping) this.mapping).copyFrom((OffHeapMapping) in.mapping);
+            return;
+        }
         this.clear();
         this.union(in);
     }
@@ -116,22 +260,53 @@ public class PointsToGraph {
      */
     public void union(PointsToGraph in) {
         this.nodes.addAll(in.nodes);
-        this.axis.addAll(in.axis);
-        for(String key: this.mapping.keySet()){
-            if (!in.mapping.containsKey(key)) {
-                continue;
-            } else {
-                Set<Node> nodes = this.mapping.get(key);
-                Set<Node> nodes2 = in.mapping.get(key);
-                nodes.addAll(nodes2);
-                this.mapping.put(key,nodes);
+        if (reachability.isEmpty()) {
+            this.axis.addAll(in.axis);
+        } else {
+            for (Axis a : in.axis) {
+                if (this.axis.add(a)) {
+                    edgeAdded(a);
+                }
             }
         }
-        for(String key: in.mapping.keySet()){
-            if (!this.mapping.containsKey(key)) {
-                Set<Node> nodes = in.mapping.get(key);
-                this.mapping.put(key,nodes);
+        // Los conjuntos del mapping pueden estar compartidos con otros grafos o variables, nunca se modifican.
+        for(Map.Entry<String, Set<Node>> entry: in.mapping.entrySet()){
+            String key = entry.getKey();
+            Set<Node> nodes2 = entry.getValue();
+            Set<Node> nodes = this.mapping.get(key);
+            if (nodes == null || nodes2 == null) {
+                putMapping(key, nodes != null ? nodes : nodes2);
+            } else if (!nodes.containsAll(nodes2)) {
+                Set<Node> merged = new HashSet<>(nodes);
+                merged.addAll(nodes2);
+                putMapping(key, merged);
             }
         }
     }
+
+    /**
+     * Asigna los nodos de una variable sin devolver los anteriores, que el mapping off-heap tendria que copiar.
+     */
+    private void putMapping(String variableName, Set<Node> nodes) {
+        if (mapping instanceof OffHeapMapping) {
+            ((OffHeapMapping) mapping).set(variableName, nodes);
+        } else {
+            mapping.put(variableName, nodes);
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other == this) return true;
+        if (!(other instanceof PointsToGraph)) return false;
+        PointsToGraph otherGraph = (PointsToGraph) other;
+        return this.nodes.equals(otherGraph.nodes) &&
+                this.axis.equals(otherGraph.axis) &&
+                this.mapping.equals(otherGraph.mapping);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(nodes, axis, mapping);
+    }
 }
@@ -0,0 +1,33 @@
+package inge2.dataflow.pointstoanalysis;
+
+import java.util.Set;
+
+/**
+ * Points-to and alias queries about the state at the end of a method.
+ */
+public interface PointsToQueries {
+
+    /**
+     * Devuelve el conjunto de nodos a los que puede apuntar la variable <code>variableName</code> al final del metodo.
+     * @param variableName
+     * @return
+     */
+    Set<Node> getNodesForVariable(String variableName);
+
+    /**
+     * Retorna true si alguno de los objetos apuntados por leftVariableName y rightVariableName coinciden.
+     * @param leftVariableName
+     * @param rightVariableName
+     * @return
+     */
+    boolean mayAlias(String leftVariableName, String rightVariableName);
+
+    /**
+     * Retorna true si alguno de los objetos apuntados por leftVariableName.fieldName y rightVariableName coinciden.
+     * @param leftVariableName
+     * @param fieldName
+     * @param rightVariableName
+     * @return
+     */
+    boolean mayAlias(String leftVariableName, String fieldName, String rightVariableName);
+}
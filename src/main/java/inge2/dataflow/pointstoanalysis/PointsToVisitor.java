@@ -1,45 +1,125 @@
 package inge2.dataflow.pointstoanalysis;
 
+import soot.RefLikeType;
+import soot.SootField;
+import soot.Type;
+import soot.Value;
 import soot.jimple.*;
 import soot.jimple.internal.JInstanceFieldRef;
 import soot.jimple.internal.JimpleLocal;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 public class PointsToVisitor extends AbstractStmtSwitch<Void> {
 
+    private static final String OBJECT_CONSTRUCTOR = "<java.lang.Object: void <init>()>";
+
     private final PointsToGraph pointsToGraph;
+    private final PointsToConfig config;
+    private final StrongUpdates strongUpdates;
+    private final CallSites callSites;
+
+    private boolean strongUpdate;
 
     public PointsToVisitor(PointsToGraph pointsToGraph) {
+        this(pointsToGraph, new PointsToConfig());
+    }
+
+    public PointsToVisitor(PointsToGraph pointsToGraph, PointsToConfig config) {
+        this(pointsToGraph, config, null, null);
+    }
+
+    /**
+     * @param pointsToGraph the graph modified by the visited statements.
+     * @param config the options of the analysis.
+     * @param strongUpdates decides which stores are strong updates, or null to make every store a weak update.
+     * @param callSites the calls of the body, or null to name the node of a call after its line only (calls on the
+     *                  same line then share their node). Required by {@link CallModel#CONSERVATIVE}.
+     */
+    public PointsToVisitor(PointsToGraph pointsToGraph, PointsToConfig config, StrongUpdates strongUpdates,
+                           CallSites callSites) {
+        if (callSites == null && config.getCalls() == CallModel.CONSERVATIVE) {
+            throw new IllegalArgumentException("calls:conservative needs the call sites of the body");
+        }
         this.pointsToGraph = pointsToGraph;
+        this.config = config;
+        this.strongUpdates = strongUpdates;
+        this.callSites = callSites;
+    }
+
+    /**
+     * Returns true if the last visited statement was a store that replaced the earlier targets of the field.
+     */
+    public boolean wasStrongUpdate() {
+        return strongUpdate;
     }
 
     @Override
     public void caseAssignStmt(AssignStmt stmt) {
-        boolean isLeftLocal = stmt.getLeftOp() instanceof JimpleLocal;
-        boolean isRightLocal = stmt.getRightOp() instanceof JimpleLocal;
+        strongUpdate = false;
+        Value left = stmt.getLeftOp();
+        Value right = stmt.getRightOp();
+        boolean isLeftLocal = left instanceof JimpleLocal;
+        boolean isRightLocal = right instanceof JimpleLocal;
 
-        boolean isLeftField = stmt.getLeftOp() instanceof JInstanceFieldRef;
-        boolean isRightField = stmt.getRightOp() instanceof JInstanceFieldRef;
+        boolean isLeftField = left instanceof JInstanceFieldRef;
+        boolean isRightField = right instanceof JInstanceFieldRef;
 
-        boolean isRightNew = stmt.getRightOp() instanceof AnyNewExpr;
+        boolean isRightNew = right instanceof AnyNewExpr;
+        boolean isRightNull = right instanceof NullConstant;
 
         if (isRightNew) { // x = new A()
             processNewObject(stmt);
         } else if (isLeftLocal && isRightLocal) { // x = y
             processCopy(stmt);
-        } else if (isLeftField && isRightLocal) { // x.f = y
+        } else if (isLeftField && (isRightLocal || isRightNull)) { // x.f = y
             processStore(stmt);
         } else if (isLeftLocal && isRightField) { // x = y.f
             processLoad(stmt);
+        } else if (isLeftLocal && isRightNull) { // x = null
+            pointsToGraph.setNodesForVariable(left.toString(), new HashSet<Node>());
+        } else if (right instanceof InvokeExpr) { // x = y.m()
+            processCall(stmt);
+        } else if (isReference(right)) {
+            // Los demas casos solo importan si el valor asignado es una referencia.
+            processReferenceAssign(stmt);
+        }
+    }
+
+    private void processReferenceAssign(AssignStmt stmt) {
+        Value left = stmt.getLeftOp();
+        Value right = stmt.getRightOp();
+        boolean isLeftLocal = left instanceof JimpleLocal;
+
+        if (isLeftLocal && right instanceof CastExpr) { // x = (A) y
+            processCast(stmt);
+        } else if (left instanceof ArrayRef) { // x[i] = y
+            processArrayStore(stmt);
+        } else if (isLeftLocal && right instanceof ArrayRef) { // x = y[i]
+            processArrayLoad(stmt);
+        } else if (left instanceof StaticFieldRef) { // A.f = y
+            processStaticStore(stmt);
+        } else if (isLeftLocal && right instanceof StaticFieldRef) { // x = A.f
+            processStaticLoad(stmt);
+        }
+    }
+
+    @Override
+    public void caseInvokeStmt(InvokeStmt stmt) { // y.m()
+        strongUpdate = false;
+        if (config.getCalls() == CallModel.CONSERVATIVE) {
+            processConservativeCall(stmt);
         }
     }
 
     private void processNewObject(AssignStmt stmt) {
         String leftVariableName = stmt.getLeftOp().toString();
         Set<Node> newNodes = new HashSet<Node>();
-        Node nodeName = pointsToGraph.getNodeName(stmt);
+        Node nodeName = config.getHeapAbstraction().getNode(stmt);
         newNodes.add(nodeName);
         pointsToGraph.setNodesForVariable(leftVariableName,newNodes);
     }
@@ -47,7 +127,8 @@ public class PointsToVisitor extends AbstractStmtSwitch<Void> {
     private void processCopy(AssignStmt stmt) {
         String leftVariableName = stmt.getLeftOp().toString();
         String rightVariableName = stmt.getRightOp().toString();
-        Set<Node> nodes_pointed_by_right = pointsToGraph.getNodesForVariable(rightVariableName);
+        Set<Node> nodes_pointed_by_right = getNodesForVariable(rightVariableName);
+        nodes_pointed_by_right = filterByType(nodes_pointed_by_right, stmt.getLeftOp().getType());
         pointsToGraph.setNodesForVariable(leftVariableName,nodes_pointed_by_right);
     }
 
@@ -55,10 +136,14 @@ public class PointsToVisitor extends AbstractStmtSwitch<Void> {
         JInstanceFieldRef leftFieldRef = (JInstanceFieldRef) stmt.getLeftOp();
         String leftVariableName = leftFieldRef.getBase().toString();
         String fieldName = leftFieldRef.getField().getName();
-        String rightVariableName = stmt.getRightOp().toString();
 
-        Set<Node> nX = pointsToGraph.getNodesForVariable(leftVariableName);
-        Set<Node> nY = pointsToGraph.getNodesForVariable(rightVariableName);
+        Set<Node> nX = getNodesForVariable(leftVariableName);
+        Set<Node> nY = getNodesForValue(stmt.getRightOp());
+        strongUpdate = strongUpdates != null && strongUpdates.isStrong(leftVariableName, nX);
+        if (strongUpdate) {
+            // x apunta a un unico objeto: el valor anterior de x.f se reemplaza.
+            pointsToGraph.removeEdges(nX.iterator().next(), fieldName);
+        }
         for (Node n : nX){
             for (Node m : nY){
                 pointsToGraph.addEdge(n,fieldName,m);
@@ -72,9 +157,184 @@ public class PointsToVisitor extends AbstractStmtSwitch<Void> {
         String rightVariableName = rightFieldRef.getBase().toString();
         String fieldName = rightFieldRef.getField().getName();
         Set<Node> n = new HashSet<Node>();
-        for (Node node : pointsToGraph.getNodesForVariable(rightVariableName)) {
+        for (Node node : getNodesForVariable(rightVariableName)) {
             n.addAll(pointsToGraph.getReachableNodesByField(node,fieldName));
         }
+        n = filterByType(n, stmt.getLeftOp().getType());
         pointsToGraph.setNodesForVariable(leftVariableName,n);
     }
+
+    private void processCast(AssignStmt stmt) { // x = (A) y
+        Set<Node> nodes = getNodesForValue(((CastExpr) stmt.getRightOp()).getOp());
+        nodes = filterByType(nodes, ((CastExpr) stmt.getRightOp()).getCastType());
+        pointsToGraph.setNodesForVariable(stmt.getLeftOp().toString(), nodes);
+    }
+
+    /**
+     * Los elementos de un arreglo no se distinguen, asi que el store nunca es un strong update.
+     */
+    private void processArrayStore(AssignStmt stmt) { // x[i] = y
+        String leftVariableName = ((ArrayRef) stmt.getLeftOp()).getBase().toString();
+        Set<Node> nY = getNodesForValue(stmt.getRightOp());
+        for (Node n : getNodesForVariable(leftVariableName)) {
+            for (Node m : nY) {
+                pointsToGraph.addEdge(n, PointsToGraph.ARRAY_FIELD, m);
+            }
+        }
+    }
+
+    private void processArrayLoad(AssignStmt stmt) { // x = y[i]
+        String rightVariableName = ((ArrayRef) stmt.getRightOp()).getBase().toString();
+        Set<Node> n = new HashSet<Node>();
+        for (Node node : getNodesForVariable(rightVariableName)) {
+            n.addAll(pointsToGraph.getReachableNodesByField(node, PointsToGraph.ARRAY_FIELD));
+        }
+        n = filterByType(n, stmt.getLeftOp().getType());
+        pointsToGraph.setNodesForVariable(stmt.getLeftOp().toString(), n);
+    }
+
+    /**
+     * Un campo estatico es una raiz global: se guarda en el mapping con la signatura del campo como nombre, y otros
+     * metodos pueden escribirlo, asi que el store agrega nodos sin borrar los anteriores.
+     */
+    private void processStaticStore(AssignStmt stmt) { // A.f = y
+        String fieldSignature = ((StaticFieldRef) stmt.getLeftOp()).getField().getSignature();
+        Set<Node> nodes = new HashSet<Node>(getNodesForVariable(fieldSignature));
+        nodes.addAll(getNodesForValue(stmt.getRightOp()));
+        pointsToGraph.setNodesForVariable(fieldSignature, nodes);
+    }
+
+    /**
+     * Ademas de lo guardado por el metodo, el campo puede apuntar a lo que tenia al empezar el metodo.
+     */
+    private void processStaticLoad(AssignStmt stmt) { // x = A.f
+        SootField field = ((StaticFieldRef) stmt.getRightOp()).getField();
+        Set<Node> n = new HashSet<Node>(getNodesForVariable(field.getSignature()));
+        n.add(config.getHeapAbstraction().getStaticNode(field));
+        n = filterByType(n, stmt.getLeftOp().getType());
+        pointsToGraph.setNodesForVariable(stmt.getLeftOp().toString(), n);
+    }
+
+    /**
+     * El metodo llamado no se analiza: ver {@link CallModel}.
+     */
+    private void processCall(AssignStmt stmt) { // x = y.m()
+        Set<Node> n;
+        if (config.getCalls() == CallModel.CONSERVATIVE) {
+            n = processConservativeCall(stmt);
+        } else {
+            n = new HashSet<Node>();
+            n.add(getCallNode(stmt));
+        }
+        if (stmt.getLeftOp() instanceof JimpleLocal && isReference(stmt.getLeftOp())) {
+            n = filterByType(n, stmt.getLeftOp().getType());
+            pointsToGraph.setNodesForVariable(stmt.getLeftOp().toString(), n);
+        }
+    }
+
+    /**
+     * Todos los objetos que escapan a la llamada (los alcanzables desde el receptor, los argumentos y los campos
+     * estaticos, y los creados por la llamada) pueden quedar en cualquier campo de cualquiera de ellos o en los
+     * campos estaticos. En vez de unir cada par de objetos, el nodo de la llamada los resume: los campos de los
+     * objetos que escapan apuntan a el, sus campos apuntan a si mismo y a las raices, y se agrega donde ya se
+     * apuntaba a un objeto que escapa, asi que es alias de todos ellos. Los ejes se agregan sin borrar nada.
+     * Devuelve el nodo de la llamada, que es lo que la llamada puede devolver.
+     */
+    private Set<Node> processConservativeCall(Stmt stmt) {
+        InvokeExpr invoke = stmt.getInvokeExpr();
+        Node summary = getCallNode(stmt);
+        Set<Node> result = new HashSet<Node>();
+        result.add(summary);
+        if (OBJECT_CONSTRUCTOR.equals(invoke.getMethodRef().getSignature())) {
+            return result;
+        }
+        Set<Node> roots = new HashSet<Node>(result);
+        if (invoke instanceof InstanceInvokeExpr) {
+            roots.addAll(getNodesForVariable(((InstanceInvokeExpr) invoke).getBase().toString()));
+        }
+        for (Value arg : invoke.getArgs()) {
+            if (arg instanceof JimpleLocal && isReference(arg)) {
+                roots.addAll(getNodesForVariable(arg.toString()));
+            }
+        }
+        for (SootField field : callSites.getStaticFields()) {
+            roots.addAll(getNodesForVariable(field.getSignature()));
+            roots.add(config.getHeapAbstraction().getStaticNode(field));
+        }
+        Set<Node> escaped = new HashSet<Node>(roots);
+        for (Node root : roots) {
+            escaped.addAll(pointsToGraph.getReachableNodes(root));
+        }
+
+        for (Axis axis : new ArrayList<Axis>(pointsToGraph.axis)) {
+            if (escaped.contains(axis.rightNode)) {
+                pointsToGraph.addEdge(axis.leftNode, axis.fieldName, summary);
+            }
+        }
+        for (String fieldName : callSites.getFieldNames()) {
+            for (Node n : escaped) {
+                pointsToGraph.addEdge(n, fieldName, summary);
+            }
+            for (Node m : roots) {
+                pointsToGraph.addEdge(summary, fieldName, m);
+            }
+        }
+        for (Map.Entry<String, Set<Node>> variable : new ArrayList<>(pointsToGraph.mapping.entrySet())) {
+            if (variable.getValue() != null && !Collections.disjoint(variable.getValue(), escaped)) {
+                Set<Node> nodes = new HashSet<Node>(variable.getValue());
+                nodes.add(summary);
+                pointsToGraph.setNodesForVariable(variable.getKey(), nodes);
+            }
+        }
+        for (SootField field : callSites.getStaticFields()) {
+            Set<Node> nodes = new HashSet<Node>(getNodesForVariable(field.getSignature()));
+            nodes.add(summary);
+            pointsToGraph.setNodesForVariable(field.getSignature(), nodes);
+        }
+        return result;
+    }
+
+    private Node getCallNode(Stmt stmt) {
+        return config.getHeapAbstraction().getCallNode(stmt, callSites != null ? callSites.getIndex(stmt) : -1);
+    }
+
+    /**
+     * Nodos a los que apunta un operando: una variable o la constante null.
+     */
+    private Set<Node> getNodesForValue(Value value) {
+        return value instanceof NullConstant ? new HashSet<Node>() : getNodesForVariable(value.toString());
+    }
+
+    /**
+     * Returns true if the value is a reference (an object, an array or null).
+     */
+    static boolean isReference(Value value) {
+        return value.getType() instanceof RefLikeType;
+    }
+
+    /**
+     * Nodos a los que apunta la variable, o el conjunto vacio si todavia no fue asignada
+     * (por ejemplo, en la primera pasada por un ciclo).
+     */
+    private Set<Node> getNodesForVariable(String variableName) {
+        Set<Node> nodes = pointsToGraph.getNodesForVariable(variableName);
+        return nodes != null ? nodes : new HashSet<Node>();
+    }
+
+    /**
+     * Si el filtro de tipos esta activo, descarta los nodos que no pueden ser asignados a una variable de tipo
+     * <code>declaredType</code>.
+     */
+    private Set<Node> filterByType(Set<Node> nodes, Type declaredType) {
+        if (!config.isTypeFilter()) {
+            return nodes;
+        }
+        Set<Node> compatibleNodes = new HashSet<Node>();
+        for (Node node : nodes) {
+            if (config.getHeapAbstraction().mayHaveType(node, declaredType)) {
+                compatibleNodes.add(node);
+            }
+        }
+        return compatibleNodes;
+    }
 }
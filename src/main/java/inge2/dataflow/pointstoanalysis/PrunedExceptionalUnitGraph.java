@@ -0,0 +1,142 @@
+package inge2.dataflow.pointstoanalysis;
+
+import soot.*;
+import soot.toolkits.graph.ExceptionalUnitGraph;
+import soot.toolkits.graph.UnitGraph;
+
+import java.util.*;
+
+/**
+ * An {@link ExceptionalUnitGraph} that only keeps the exceptional edges into handlers that can observe the
+ * points-to state of the method.
+ *
+ * A handler observes the state if its code reads a reference local that it did not define itself on every path
+ * from the handler (the caught exception counts as defined), or if it continues into the normal code of the method.
+ * The rest of the handlers, e.g. the ones that only wrap and rethrow the exception, become heads of the graph and
+ * are analysed from an empty state.
+ *
+ * The graph is derived from a full {@link ExceptionalUnitGraph}, so it takes longer to build than that graph; what
+ * it saves is fixpoint work, because the analysis merges fewer states into the pruned handlers.
+ */
+public class PrunedExceptionalUnitGraph extends UnitGraph {
+
+    public PrunedExceptionalUnitGraph(Body body) {
+        super(body);
+        ExceptionalUnitGraph exceptionalGraph = new ExceptionalUnitGraph(body);
+
+        unitToSuccs = new HashMap<>();
+        unitToPreds = new HashMap<>();
+        Map<Unit, Boolean> observingHandlers = new HashMap<>();
+        Set<Unit> normalCode = getNormalCode(exceptionalGraph);
+        for (Unit unit : unitChain) {
+            unitToSuccs.putIfAbsent(unit, new ArrayList<>());
+            unitToPreds.putIfAbsent(unit, new ArrayList<>());
+            for (Unit succ : exceptionalGraph.getUnexceptionalSuccsOf(unit)) {
+                addEdge(unitToSuccs, unitToPreds, unit, succ);
+            }
+            for (Unit handler : exceptionalGraph.getExceptionalSuccsOf(unit)) {
+                boolean observes = observingHandlers.computeIfAbsent(handler,
+                        h -> observesState(exceptionalGraph, h, normalCode));
+                if (observes) {
+                    addEdge(unitToSuccs, unitToPreds, unit, handler);
+                }
+            }
+        }
+        buildHeadsAndTails();
+    }
+
+    /**
+     * Units reachable from the heads of the method without exceptional edges.
+     */
+    private static Set<Unit> getNormalCode(ExceptionalUnitGraph graph) {
+        Set<Unit> normalCode = new HashSet<>();
+        Deque<Unit> worklist = new ArrayDeque<>();
+        Unit entry = graph.getBody().getUnits().getFirst();
+        if (entry != null) {
+            worklist.add(entry);
+        }
+        while (!worklist.isEmpty()) {
+            Unit unit = worklist.pop();
+            if (normalCode.add(unit)) {
+                worklist.addAll(graph.getUnexceptionalSuccsOf(unit));
+            }
+        }
+        return normalCode;
+    }
+
+    /**
+     * Walks the handler's region (the units reachable from it without exceptional edges) with a must-defined
+     * dataflow: a local counts as defined at a unit only if the handler defines it on every path to the unit.
+     */
+    private static boolean observesState(ExceptionalUnitGraph graph, Unit handler, Set<Unit> normalCode) {
+        Set<Unit> region = new LinkedHashSet<>();
+        Deque<Unit> worklist = new ArrayDeque<>();
+        worklist.add(handler);
+        while (!worklist.isEmpty()) {
+            Unit unit = worklist.pop();
+            if (normalCode.contains(unit)) {
+                // The handler continues into the code of the method, so the state before the exception flows on.
+                return true;
+            }
+            if (region.add(unit)) {
+                worklist.addAll(graph.getUnexceptionalSuccsOf(unit));
+            }
+        }
+
+        // Locals defined after each unit; a unit that was not reached yet has no entry (all locals).
+        Map<Unit, Set<Local>> definedAfter = new HashMap<>();
+        worklist.addAll(region);
+        while (!worklist.isEmpty()) {
+            Unit unit = worklist.pop();
+            Set<Local> defined = getDefinedBefore(graph, unit, handler, region, definedAfter);
+            for (ValueBox defBox : unit.getDefBoxes()) {
+                if (defBox.getValue() instanceof Local) {
+                    defined.add((Local) defBox.getValue());
+                }
+            }
+            if (!defined.equals(definedAfter.put(unit, defined))) {
+                for (Unit succ : graph.getUnexceptionalSuccsOf(unit)) {
+                    if (!worklist.contains(succ)) {
+                        worklist.add(succ);
+                    }
+                }
+            }
+        }
+
+        for (Unit unit : region) {
+            Set<Local> defined = getDefinedBefore(graph, unit, handler, region, definedAfter);
+            for (ValueBox useBox : unit.getUseBoxes()) {
+                Value use = useBox.getValue();
+                if (use instanceof Local && use.getType() instanceof RefLikeType && !defined.contains(use)) {
+                    // Locals the handler did not define on every path come from the state before the exception.
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Locals the handler defines on every path to <code>unit</code>. The caught exception is not part of the
+     * state before the exception, and is defined by the identity statement that starts the handler.
+     */
+    private static Set<Local> getDefinedBefore(ExceptionalUnitGraph graph, Unit unit, Unit handler, Set<Unit> region,
+                                               Map<Unit, Set<Local>> definedAfter) {
+        if (unit == handler) {
+            return new HashSet<>();
+        }
+        Set<Local> defined = null;
+        for (Unit pred : graph.getUnexceptionalPredsOf(unit)) {
+            Set<Local> predDefined = region.contains(pred) ? definedAfter.get(pred) : null;
+            if (predDefined == null) {
+                continue;
+            }
+            if (defined == null) {
+                defined = new HashSet<>(predDefined);
+            } else {
+                defined.retainAll(predDefined);
+            }
+        }
+        return defined != null ? defined : new HashSet<>();
+    }
+}
@@ -0,0 +1,151 @@
+package inge2.dataflow.pointstoanalysis;
+
+import soot.Local;
+import soot.Unit;
+import soot.Value;
+import soot.ValueBox;
+import soot.jimple.AnyNewExpr;
+import soot.jimple.AssignStmt;
+import soot.jimple.CastExpr;
+import soot.jimple.NullConstant;
+import soot.toolkits.graph.StronglyConnectedComponentsFast;
+import soot.toolkits.graph.UnitGraph;
+
+import java.util.*;
+
+/**
+ * Decides which stores <code>x.f = y</code> can replace the earlier targets of <code>x.f</code> (strong update)
+ * instead of adding to them (weak update).
+ *
+ * A store is strong when x points to a single node that represents a single object: a node created by only one
+ * allocation statement of the method, outside of loops. Any other node (a loop allocation, several statements
+ * merged by the heap abstraction) is a summary of several objects, and a store on it must be weak.
+ *
+ * Parameters, <code>this</code>, loaded fields and call results have no node, or not all of theirs, so a single node
+ * in x does not prove that x holds a single object: in <code>x = c ? new A() : param; x.f = y</code>, x points
+ * only to the node of the "new". The store is only strong if every definition of x is an allocation, null, or a
+ * copy (or cast) of a local with the same property.
+ */
+public class StrongUpdates {
+
+    private final Set<Node> singleObjectNodes = new HashSet<>();
+
+    /**
+     * Locales definidas solo por allocations, null o copias de otras locales de este conjunto.
+     */
+    private final Set<String> allocatedLocals = new HashSet<>();
+
+    /**
+     * @param graph the control flow graph of the method.
+     * @param heapAbstraction the abstraction that names the allocated nodes.
+     */
+    public StrongUpdates(UnitGraph graph, HeapAbstraction heapAbstraction) {
+        Set<Unit> inLoop = new HashSet<>();
+        for (List<Unit> component : new StronglyConnectedComponentsFast<>(graph).getComponents()) {
+            Unit first = component.get(0);
+            if (component.size() > 1 || graph.getSuccsOf(first).contains(first)) {
+                inLoop.addAll(component);
+            }
+        }
+
+        Map<Node, Integer> allocations = new HashMap<>();
+        Set<Node> summaries = new HashSet<>();
+        for (Unit unit : graph.getBody().getUnits()) {
+            if (unit instanceof AssignStmt && ((AssignStmt) unit).getRightOp() instanceof AnyNewExpr) {
+                Node node = heapAbstraction.getNode((AssignStmt) unit);
+                allocations.merge(node, 1, Integer::sum);
+                if (inLoop.contains(unit)) {
+                    summaries.add(node);
+                }
+            }
+        }
+        for (Map.Entry<Node, Integer> allocation : allocations.entrySet()) {
+            if (allocation.getValue() == 1 && !summaries.contains(allocation.getKey())) {
+                singleObjectNodes.add(allocation.getKey());
+            }
+        }
+        findAllocatedLocals(graph);
+    }
+
+    /**
+     * Greatest fixpoint: starts with every local and drops the ones with a definition that is not an allocation,
+     * null, or a copy of a local that was not dropped.
+     */
+    private void findAllocatedLocals(UnitGraph graph) {
+        Map<Local, List<Value>> definitions = new HashMap<>();
+        Set<Local> notAllocated = new HashSet<>();
+        for (Unit unit : graph.getBody().getUnits()) {
+            for (ValueBox box : unit.getDefBoxes()) {
+                if (box.getValue() instanceof Local) {
+                    Local local = (Local) box.getValue();
+                    if (unit instanceof AssignStmt) {
+                        definitions.computeIfAbsent(local, l -> new ArrayList<>()).add(((AssignStmt) unit).getRightOp());
+                    } else {
+                        // Identity statements: parameters, this and caught exceptions.
+                        notAllocated.add(local);
+                    }
+                }
+            }
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Map.Entry<Local, List<Value>> definition : definitions.entrySet()) {
+                if (!notAllocated.contains(definition.getKey())) {
+                    for (Value value : definition.getValue()) {
+                        if (!isAllocated(value, definitions.keySet(), notAllocated)) {
+                            notAllocated.add(definition.getKey());
+                            changed = true;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        for (Local local : definitions.keySet()) {
+            if (!notAllocated.contains(local)) {
+                allocatedLocals.add(local.getName());
+            }
+        }
+    }
+
+    private static boolean isAllocated(Value value, Set<Local> defined, Set<Local> notAllocated) {
+        if (value instanceof CastExpr) {
+            value = ((CastExpr) value).getOp();
+        }
+        if (value instanceof Local) {
+            return defined.contains(value) && !notAllocated.contains(value);
+        }
+        return value instanceof AnyNewExpr || value instanceof NullConstant;
+    }
+
+    /**
+     * Returns the nodes that represent a single object.
+     */
+    public Set<Node> getSingleObjectNodes() {
+        return Collections.unmodifiableSet(singleObjectNodes);
+    }
+
+    /**
+     * Returns the locals that can only hold objects allocated in the method (or null).
+     */
+    public Set<String> getAllocatedLocals() {
+        return Collections.unmodifiableSet(allocatedLocals);
+    }
+
+    /**
+     * Returns true if the node represents a single object.
+     */
+    public boolean isSingleObject(Node node) {
+        return singleObjectNodes.contains(node);
+    }
+
+    /**
+     * Returns true if a store on the local <code>base</code>, that points to <code>baseNodes</code>, is a strong
+     * update.
+     */
+    public boolean isStrong(String base, Set<Node> baseNodes) {
+        return baseNodes.size() == 1 && isSingleObject(baseNodes.iterator().next()) && allocatedLocals.contains(base);
+    }
+}
@@ -0,0 +1,63 @@
+package inge2.dataflow.pointstoanalysis;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Numbers the nodes, fields or variables stored in off-heap graphs. A table is shared by the graphs (and threads)
+ * of an analysis, see {@link OffHeapSymbols}.
+ *
+ * Symbols are numbered by their own equals, so an off-heap graph tells nodes apart exactly like a
+ * {@link java.util.HashSet} does.
+ */
+final class SymbolTable<T> {
+
+    private final Map<T, Integer> ids = new ConcurrentHashMap<>();
+
+    /**
+     * Simbolos por numero. Se reemplaza (nunca se modifica una posicion ya publicada) al crecer.
+     */
+    private volatile Object[] symbols = new Object[64];
+    private int size;
+
+    SymbolTable() {
+    }
+
+    /**
+     * Returns the number of the symbol, numbering it if it is new.
+     */
+    int getId(T symbol) {
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(symbol);
+            if (id == null) {
+                id = size;
+                Object[] current = symbols;
+                if (size == current.length) {
+                    current = Arrays.copyOf(current, size * 2);
+                }
+                current[size++] = symbol;
+                symbols = current;
+                ids.put(symbol, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * Returns the number of the symbol, or -1 if it was never numbered.
+     */
+    int findId(Object symbol) {
+        Integer id = symbol == null ? null : ids.get(symbol);
+        return id != null ? id : -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int id) {
+        return (T) symbols[id];
+    }
+}
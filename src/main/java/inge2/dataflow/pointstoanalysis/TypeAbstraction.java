@@ -0,0 +1,90 @@
+package inge2.dataflow.pointstoanalysis;
+
+import soot.FastHierarchy;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.Type;
+import soot.jimple.AnyNewExpr;
+import soot.jimple.AssignStmt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One node per allocated type. All the allocation sites of the same type are merged into a single node.
+ *
+ * Optionally, a list of group roots can be given: an allocated type that is a subtype of a root is merged into the
+ * node of the first such root. E.g. with the root <code>java.util.Collection</code> every list and set allocated
+ * in the method is represented by the node <code>(java.util.Collection)</code>.
+ */
+public class TypeAbstraction implements HeapAbstraction {
+
+    private final List<RefType> groupRoots;
+
+    public TypeAbstraction() {
+        this(new ArrayList<>());
+    }
+
+    /**
+     * @param groupRoots the roots of the type groups, in priority order.
+     */
+    public TypeAbstraction(List<RefType> groupRoots) {
+        this.groupRoots = groupRoots;
+    }
+
+    public List<RefType> getGroupRoots() {
+        return groupRoots;
+    }
+
+    @Override
+    public Node getNode(AssignStmt stmt) {
+        Type allocatedType = ((AnyNewExpr) stmt.getRightOp()).getType();
+        Type nodeType = getGroupFor(allocatedType);
+        return new Node(nodeType.toString(), nodeType);
+    }
+
+    /**
+     * A group node stands for objects of any subtype of its root, so it is compatible with a variable whenever
+     * some subtype of the root can be stored in it. Besides the subtypes of both types, that includes a subtype of
+     * the root that implements an unrelated interface, so the node is only filtered out when the root and the
+     * declared type are provably disjoint.
+     */
+    @Override
+    public boolean mayHaveType(Node node, Type declaredType) {
+        if (node.type == null || !groupRoots.contains(node.type)) {
+            return HeapAbstraction.super.mayHaveType(node, declaredType);
+        }
+        FastHierarchy hierarchy = Scene.v().getOrMakeFastHierarchy();
+        if (hierarchy.canStoreType(node.type, declaredType) || hierarchy.canStoreType(declaredType, node.type)) {
+            return true;
+        }
+        return declaredType instanceof RefType && mayHaveCommonSubtype((RefType) node.type, (RefType) declaredType);
+    }
+
+    /**
+     * Returns true if a class can extend or implement both types, given that neither is a subtype of the other:
+     * one of them must be an interface, and the other one an interface or a class that is not final.
+     */
+    private static boolean mayHaveCommonSubtype(RefType first, RefType second) {
+        SootClass firstClass = first.getSootClass();
+        SootClass secondClass = second.getSootClass();
+        if (firstClass.isInterface()) {
+            return secondClass.isInterface() || !secondClass.isFinal();
+        }
+        return secondClass.isInterface() && !firstClass.isFinal();
+    }
+
+    private Type getGroupFor(Type allocatedType) {
+        if (groupRoots.isEmpty()) {
+            return allocatedType;
+        }
+        FastHierarchy hierarchy = Scene.v().getOrMakeFastHierarchy();
+        for (RefType root : groupRoots) {
+            if (hierarchy.canStoreType(allocatedType, root)) {
+                return root;
+            }
+        }
+        return allocatedType;
+    }
+}
@@ -0,0 +1,322 @@
+package inge2.dataflow.server;
+
+import com.google.gson.*;
+import inge2.dataflow.pointstoanalysis.*;
+import org.slf4j.Logger;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Long-running analysis server that keeps a warm Soot Scene (see {@link AnalysisSession}).
+ *
+ * The protocol is JSON lines over stdin/stdout: each input line is a request and each output line is the response
+ * to one request. Requests are served concurrently, so responses can come out of order; they carry the "id" of
+ * their request. Every response reports the time the request waited in the queue and the time it took to serve it.
+ *
+ * <pre>
+ * {"id": 1, "type": "analyze", "class": "inge2.dataflow.targets.Target5"}
+ * {"id": 2, "type": "mayAlias", "class": "inge2.dataflow.targets.Target5", "queries": [["t", "y"], ["x", "f1", "y"]]}
+ * {"id": 3, "type": "dump", "class": "inge2.dataflow.targets.Target5", "method": "entryPoint",
+ *  "options": {"heap-abstraction": "type"}}
+ * {"id": 4, "type": "stats"}
+ * {"id": 5, "type": "shutdown"}
+ * </pre>
+ */
+public class AnalysisServer {
+
+    private static final Logger logger = getLogger(AnalysisServer.class);
+
+    private static final String DEFAULT_METHOD = "entryPoint";
+
+    private final AnalysisSession session;
+    private final ThreadPoolExecutor workers;
+
+    private final LongAdder served = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalQueueNanos = new LongAdder();
+    private final LongAdder totalServiceNanos = new LongAdder();
+    private final AtomicLong maxQueueNanos = new AtomicLong();
+    private final AtomicLong maxServiceNanos = new AtomicLong();
+
+    /**
+     * @param session the session used to analyse the requested classes.
+     * @param threads the number of worker threads.
+     * @param queueCapacity the maximum number of requests waiting for a worker; further requests are rejected.
+     */
+    public AnalysisServer(AnalysisSession session, int threads, int queueCapacity) {
+        this.session = session;
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity));
+    }
+
+    /**
+     * Usage: <code>AnalysisServer -cp &lt;sootClassPath&gt; [-threads N] [-queue N]</code>
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String sootClassPath = System.getProperty("sootClassPath");
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queueCapacity = 1024;
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            } else if ("-cp".equals(args[i])) {
+                sootClassPath = args[i + 1];
+            } else if ("-threads".equals(args[i])) {
+                threads = Integer.parseInt(args[i + 1]);
+            } else if ("-queue".equals(args[i])) {
+                queueCapacity = Integer.parseInt(args[i + 1]);
+            } else {
+                throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        if (sootClassPath == null) {
+            throw new IllegalArgumentException("Missing Soot class path, use -cp <sootClassPath>");
+        }
+
+        long start = System.nanoTime();
+        AnalysisServer server = new AnalysisServer(new AnalysisSession(sootClassPath), threads, queueCapacity);
+        logger.info("Scene loaded in {} ms, serving with {} threads", (System.nanoTime() - start) / 1_000_000, threads);
+
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+        server.serve(in, out);
+    }
+
+    /**
+     * Serves the requests read from <code>in</code> until a "shutdown" request or the end of the input, and waits
+     * for the pending requests to finish.
+     */
+    public void serve(BufferedReader in, Writer out) throws IOException, InterruptedException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            JsonObject request;
+            try {
+                request = JsonParser.parseString(line).getAsJsonObject();
+            } catch (JsonParseException | IllegalStateException e) {
+                write(out, error(null, "Invalid request: " + e.getMessage()));
+                continue;
+            }
+            if ("shutdown".equals(getString(request, "type", ""))) {
+                break;
+            }
+            submit(request, out);
+        }
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    private void submit(JsonObject request, Writer out) throws IOException {
+        long enqueued = System.nanoTime();
+        try {
+            workers.execute(() -> {
+                long started = System.nanoTime();
+                JsonObject response;
+                try {
+                    response = handle(request);
+                } catch (RuntimeException e) {
+                    logger.warn("Request failed: {}", request, e);
+                    response = error(request, e.toString());
+                }
+                long finished = System.nanoTime();
+                record(started - enqueued, finished - started);
+                response.addProperty("queueMillis", (started - enqueued) / 1e6);
+                response.addProperty("serviceMillis", (finished - started) / 1e6);
+                try {
+                    write(out, response);
+                } catch (IOException e) {
+                    logger.error("Could not write response", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            write(out, error(request, "Server busy: request queue is full"));
+        }
+    }
+
+    /**
+     * Serves a single request.
+     * @param request the request.
+     * @return the response, without the latency fields.
+     */
+    public JsonObject handle(JsonObject request) {
+        String type = getString(request, "type", "");
+        switch (type) {
+            case "analyze":
+                return analyze(request);
+            case "mayAlias":
+                return mayAlias(request);
+            case "dump":
+                return dump(request);
+            case "stats":
+                return stats(request);
+            default:
+                return error(request, "Unknown request type: " + type);
+        }
+    }
+
+    private JsonObject analyze(JsonObject request) {
+        PointsToQueries analysis = getAnalysis(request);
+        JsonObject response = ok(request);
+        response.addProperty("engine", analysis.getClass().getSimpleName());
+        PointsToGraph graph = getPointsToGraph(analysis);
+        if (graph != null) {
+            response.addProperty("nodes", graph.nodes.size());
+            response.addProperty("edges", graph.axis.size());
+            response.addProperty("variables", graph.mapping.size());
+        }
+        return response;
+    }
+
+    private JsonObject mayAlias(JsonObject request) {
+        PointsToQueries analysis = getAnalysis(request);
+        JsonArray answers = new JsonArray();
+        if (!request.has("queries")) {
+            return error(request, "Missing \"queries\"");
+        }
+        synchronized (analysis) {
+            for (JsonElement element : request.getAsJsonArray("queries")) {
+                JsonArray query = element.getAsJsonArray();
+                if (query.size() == 2) {
+                    answers.add(analysis.mayAlias(query.get(0).getAsString(), query.get(1).getAsString()));
+                } else if (query.size() == 3) {
+                    answers.add(analysis.mayAlias(query.get(0).getAsString(), query.get(1).getAsString(),
+                            query.get(2).getAsString()));
+                } else {
+                    return error(request, "A query must be [x, y] or [x, field, y]: " + query);
+                }
+            }
+        }
+        JsonObject response = ok(request);
+        response.add("answers", answers);
+        return response;
+    }
+
+    private JsonObject dump(JsonObject request) {
+        PointsToGraph graph = getPointsToGraph(getAnalysis(request));
+        if (graph == null) {
+            return error(request, "The graph of a demand-driven analysis cannot be dumped");
+        }
+        JsonObject response = ok(request);
+        response.add("graph", toJson(graph));
+        return response;
+    }
+
+    private JsonObject stats(JsonObject request) {
+        JsonObject response = ok(request);
+        long count = served.sum();
+        response.addProperty("served", count);
+        response.addProperty("rejected", rejected.sum());
+        response.addProperty("queued", workers.getQueue().size());
+        response.addProperty("analyses", session.getAnalysisCount());
+        response.addProperty("meanQueueMillis", count == 0 ? 0 : totalQueueNanos.sum() / 1e6 / count);
+        response.addProperty("meanServiceMillis", count == 0 ? 0 : totalServiceNanos.sum() / 1e6 / count);
+        response.addProperty("maxQueueMillis", maxQueueNanos.get() / 1e6);
+        response.addProperty("maxServiceMillis", maxServiceNanos.get() / 1e6);
+        return response;
+    }
+
+    private PointsToQueries getAnalysis(JsonObject request) {
+        if (!request.has("class")) {
+            throw new IllegalArgumentException("Missing \"class\"");
+        }
+        Map<String, String> options = new TreeMap<>();
+        if (request.has("options")) {
+            for (Map.Entry<String, JsonElement> option : request.getAsJsonObject("options").entrySet()) {
+                options.put(option.getKey(), option.getValue().getAsString());
+            }
+        }
+        return session.analyze(request.get("class").getAsString(), getString(request, "method", DEFAULT_METHOD), options);
+    }
+
+    /**
+     * Returns the graph at the end of the method, or null if the analysis does not compute it.
+     */
+    static PointsToGraph getPointsToGraph(PointsToQueries analysis) {
+        if (analysis instanceof PointsToAnalysis) {
+            return ((PointsToAnalysis) analysis).getLastPointsToGraph();
+        } else if (analysis instanceof IncrementalPointsToAnalysis) {
+            return ((IncrementalPointsToAnalysis) analysis).getLastPointsToGraph();
+        } else if (analysis instanceof ParallelPointsToAnalysis) {
+            return ((ParallelPointsToAnalysis) analysis).getLastPointsToGraph();
+        }
+        return null;
+    }
+
+    static JsonObject toJson(PointsToGraph graph) {
+        JsonArray nodes = new JsonArray();
+        for (Node node : graph.nodes) {
+            nodes.add(node.name);
+        }
+        JsonArray edges = new JsonArray();
+        for (Axis axis : graph.axis) {
+            JsonArray edge = new JsonArray();
+            edge.add(axis.leftNode.name);
+            edge.add(axis.fieldName);
+            edge.add(axis.rightNode.name);
+            edges.add(edge);
+        }
+        JsonObject mapping = new JsonObject();
+        for (Map.Entry<String, Set<Node>> variable : new TreeMap<>(graph.mapping).entrySet()) {
+            JsonArray variableNodes = new JsonArray();
+            if (variable.getValue() != null) {
+                for (Node node : variable.getValue()) {
+                    variableNodes.add(node.name);
+                }
+            }
+            mapping.add(variable.getKey(), variableNodes);
+        }
+        JsonObject json = new JsonObject();
+        json.add("nodes", nodes);
+        json.add("edges", edges);
+        json.add("mapping", mapping);
+        return json;
+    }
+
+    private void record(long queueNanos, long serviceNanos) {
+        served.increment();
+        totalQueueNanos.add(queueNanos);
+        totalServiceNanos.add(serviceNanos);
+        maxQueueNanos.accumulateAndGet(queueNanos, Math::max);
+        maxServiceNanos.accumulateAndGet(serviceNanos, Math::max);
+    }
+
+    private static void write(Writer out, JsonObject response) throws IOException {
+        synchronized (out) {
+            out.write(response.toString());
+            out.write('\n');
+            out.flush();
+        }
+    }
+
+    private static JsonObject ok(JsonObject request) {
+        JsonObject response = new JsonObject();
+        if (request != null && request.has("id")) {
+            response.add("id", request.get("id"));
+        }
+        response.addProperty("ok", true);
+        return response;
+    }
+
+    private static JsonObject error(JsonObject request, String message) {
+        JsonObject response = ok(request);
+        response.addProperty("ok", false);
+        response.addProperty("error", message);
+        return response;
+    }
+
+    private static String getString(JsonObject request, String name, String defaultValue) {
+        return request.has(name) ? request.get(name).getAsString() : defaultValue;
+    }
+}
@@ -0,0 +1,142 @@
+package inge2.dataflow.server;
+
+import inge2.dataflow.Launcher;
+import inge2.dataflow.pointstoanalysis.PointsToConfig;
+import inge2.dataflow.pointstoanalysis.PointsToQueries;
+import soot.*;
+import soot.options.Options;
+import soot.toolkits.graph.UnitGraph;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A Soot Scene that is loaded once and reused to analyse many methods.
+ *
+ * Classes are loaded on demand the first time one of their methods is analysed, and the result of each analysis is
+ * cached. Soot keeps its state in global singletons, so there can only be one session per JVM and it must not be
+ * mixed with {@link Launcher#analyzeClass}.
+ */
+public class AnalysisSession {
+
+    /**
+     * The Scene is not thread safe: loading classes, building bodies and building control flow graphs is serialized
+     * with this lock.
+     */
+    private final Object sceneLock = new Object();
+
+    /**
+     * One future per analysed method and options, so concurrent requests for the same key run the analysis once.
+     */
+    private final Map<String, CompletableFuture<PointsToQueries>> analyses = new ConcurrentHashMap<>();
+
+    /**
+     * Loads the basic classes of the Scene.
+     * @param sootClassPath the class path where the analysed classes are looked up.
+     */
+    public AnalysisSession(String sootClassPath) {
+        synchronized (sceneLock) {
+            G.reset();
+
+            List<String> sootArgs = new ArrayList<>(Arrays.asList("-cp", sootClassPath));
+            sootArgs.addAll(Arrays.asList(Launcher.JIMPLE_BODY_OPTIONS));
+            if (!Options.v().parse(sootArgs.toArray(new String[0]))) {
+                throw new IllegalArgumentException("Invalid Soot options: " + sootArgs);
+            }
+            Scene.v().loadBasicClasses();
+        }
+    }
+
+    /**
+     * Returns the Jimple body of a method, loading its class if needed.
+     * @param className the fully qualified name of the class.
+     * @param methodName the name of the method, which must not be overloaded.
+     * @return the active body of the method.
+     */
+    public Body getBody(String className, String methodName) {
+        synchronized (sceneLock) {
+            SootClass sootClass = Scene.v().loadClassAndSupport(className);
+            if (sootClass.isPhantom()) {
+                throw new IllegalArgumentException("Class not found: " + className);
+            }
+            sootClass.setApplicationClass();
+            SootMethod method = sootClass.getMethodByNameUnsafe(methodName);
+            if (method == null || !method.isConcrete()) {
+                throw new IllegalArgumentException("No concrete method " + methodName + " in " + className);
+            }
+            return method.retrieveActiveBody();
+        }
+    }
+
+    /**
+     * Returns the control flow graph of a method, loading its class if needed.
+     * @param className the fully qualified name of the class.
+     * @param methodName the name of the method, which must not be overloaded.
+     * @param config the configuration of the analysis, that selects the kind of graph.
+     * @return the control flow graph of the active body of the method.
+     */
+    public UnitGraph getUnitGraph(String className, String methodName, PointsToConfig config) {
+        synchronized (sceneLock) {
+            return Launcher.buildCfg(getBody(className, methodName), config);
+        }
+    }
+
+    /**
+     * Analyses a method, or returns the cached analysis if it was already analysed with the same options.
+     * The returned analysis is not thread safe: concurrent queries on it must be synchronized on it.
+     * @param className the fully qualified name of the class.
+     * @param methodName the name of the method.
+     * @param phaseOptions the options of the analysis, see {@link PointsToConfig#fromPhaseOptions(Map)}.
+     * @return the points-to queries of the method.
+     */
+    public PointsToQueries analyze(String className, String methodName, Map<String, String> phaseOptions) {
+        String key = className + "." + methodName + new TreeMap<>(phaseOptions);
+        CompletableFuture<PointsToQueries> future = new CompletableFuture<>();
+        CompletableFuture<PointsToQueries> previous = analyses.putIfAbsent(key, future);
+        if (previous != null) {
+            return join(previous);
+        }
+        try {
+            PointsToConfig config = PointsToConfig.fromPhaseOptions(phaseOptions);
+            // Only the fixpoint runs outside the lock, the graph it walks is already built.
+            future.complete(Launcher.analyzeGraph(getUnitGraph(className, methodName, config), config));
+        } catch (RuntimeException | Error e) {
+            // Failures are not cached, the next request for the same key tries again.
+            analyses.remove(key, future);
+            future.completeExceptionally(e);
+            throw e;
+        }
+        return future.join();
+    }
+
+    /**
+     * Waits for an analysis started by another request and rethrows its failure as is.
+     */
+    private static PointsToQueries join(CompletableFuture<PointsToQueries> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns how many analyses are cached.
+     */
+    public int getAnalysisCount() {
+        int count = 0;
+        for (CompletableFuture<PointsToQueries> future : analyses.values()) {
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,236 @@
+package inge2.dataflow.server;
+
+import com.google.gson.*;
+import inge2.dataflow.pointstoanalysis.AliasIndex;
+import inge2.dataflow.pointstoanalysis.Node;
+import inge2.dataflow.pointstoanalysis.PointsToGraph;
+import inge2.dataflow.pointstoanalysis.PointsToQueries;
+import org.slf4j.Logger;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Command line entry point that answers a file of points-to queries in a single process.
+ *
+ * The input is JSON lines, one query per line. The queries are grouped by class, so each class is loaded and each
+ * of its methods is analysed once (with {@link AnalysisSession}), and they are answered with an {@link AliasIndex}
+ * of the graph at the end of the method. The answers are written as JSON lines, grouped by class in the order each
+ * class first appears, with the "id" of the query and the time it took to answer it.
+ *
+ * <pre>
+ * {"id": 1, "class": "inge2.dataflow.targets.Target5", "query": "mayAlias", "args": ["t", "y"]}
+ * {"id": 2, "class": "inge2.dataflow.targets.Target5", "query": "mayAlias", "args": ["x", "f1", "y"]}
+ * {"id": 3, "class": "inge2.dataflow.targets.Target3", "method": "entryPoint", "options": {"heap-abstraction": "type"},
+ *  "query": "pointsTo", "args": ["x"]}
+ * </pre>
+ */
+public class BatchQueries {
+
+    private static final Logger logger = getLogger(BatchQueries.class);
+
+    private static final String DEFAULT_METHOD = "entryPoint";
+
+    private final AnalysisSession session;
+
+    /**
+     * Indice de cada analisis; los analisis sin grafo (demand-driven) se consultan directamente.
+     */
+    private final Map<PointsToQueries, AliasIndex> indexes = new IdentityHashMap<>();
+
+    private int answered;
+    private int failed;
+    private long analysisNanos;
+    private long queryNanos;
+
+    public BatchQueries(AnalysisSession session) {
+        this.session = session;
+    }
+
+    /**
+     * Usage: <code>BatchQueries -cp &lt;sootClassPath&gt; [-i queries.jsonl] [-o answers.jsonl]</code>
+     * The queries are read from stdin and the answers written to stdout if no file is given.
+     */
+    public static void main(String[] args) throws IOException {
+        String sootClassPath = System.getProperty("sootClassPath");
+        String inputFile = null;
+        String outputFile = null;
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            } else if ("-cp".equals(args[i])) {
+                sootClassPath = args[i + 1];
+            } else if ("-i".equals(args[i])) {
+                inputFile = args[i + 1];
+            } else if ("-o".equals(args[i])) {
+                outputFile = args[i + 1];
+            } else {
+                throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        if (sootClassPath == null) {
+            throw new IllegalArgumentException("Missing Soot class path, use -cp <sootClassPath>");
+        }
+
+        BatchQueries batch = new BatchQueries(new AnalysisSession(sootClassPath));
+        try (BufferedReader in = inputFile != null
+                ? Files.newBufferedReader(Paths.get(inputFile), StandardCharsets.UTF_8)
+                : new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(outputFile != null
+                     ? Files.newBufferedWriter(Paths.get(outputFile), StandardCharsets.UTF_8)
+                     : new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+            batch.run(in, out);
+        }
+    }
+
+    /**
+     * Reads every query from <code>in</code> and writes the answers to <code>out</code>, flushing after each class.
+     */
+    public void run(BufferedReader in, Writer out) throws IOException {
+        Map<String, List<JsonObject>> queriesByClass = new LinkedHashMap<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            JsonObject query;
+            try {
+                query = JsonParser.parseString(line).getAsJsonObject();
+            } catch (JsonParseException | IllegalStateException e) {
+                write(out, error(null, "Invalid query on line " + lineNumber + ": " + e.getMessage()));
+                continue;
+            }
+            if (!query.has("class")) {
+                write(out, error(query, "Missing \"class\""));
+                continue;
+            }
+            queriesByClass.computeIfAbsent(query.get("class").getAsString(), className -> new ArrayList<>()).add(query);
+        }
+
+        for (Map.Entry<String, List<JsonObject>> classQueries : queriesByClass.entrySet()) {
+            for (JsonObject query : classQueries.getValue()) {
+                write(out, answer(query));
+            }
+            out.flush();
+            logger.info("Answered {} queries on {}", classQueries.getValue().size(), classQueries.getKey());
+        }
+        logger.info("{} queries answered, {} failed; {} ms analysing, {} ms answering", answered, failed,
+                analysisNanos / 1_000_000, queryNanos / 1_000_000);
+    }
+
+    /**
+     * Answers a single query.
+     * @param query the query.
+     * @return the answer, or an error if the query is invalid or its method cannot be analysed.
+     */
+    public JsonObject answer(JsonObject query) {
+        PointsToQueries analysis;
+        long start = System.nanoTime();
+        try {
+            analysis = getAnalysis(query);
+        } catch (RuntimeException e) {
+            failed++;
+            return error(query, e.toString());
+        } finally {
+            analysisNanos += System.nanoTime() - start;
+        }
+
+        start = System.nanoTime();
+        JsonObject response;
+        try {
+            response = ok(query);
+            response.add("answer", evaluate(query, analysis));
+            answered++;
+        } catch (RuntimeException e) {
+            failed++;
+            response = error(query, e.toString());
+        }
+        long nanos = System.nanoTime() - start;
+        queryNanos += nanos;
+        response.addProperty("micros", nanos / 1e3);
+        return response;
+    }
+
+    private JsonElement evaluate(JsonObject query, PointsToQueries analysis) {
+        String type = query.has("query") ? query.get("query").getAsString() : "";
+        JsonArray args = query.has("args") ? query.getAsJsonArray("args") : new JsonArray();
+        AliasIndex index = indexes.get(analysis);
+        switch (type) {
+            case "mayAlias":
+                if (args.size() == 2) {
+                    String left = args.get(0).getAsString();
+                    String right = args.get(1).getAsString();
+                    return new JsonPrimitive(index != null ? index.mayAlias(left, right) : analysis.mayAlias(left, right));
+                } else if (args.size() == 3) {
+                    String left = args.get(0).getAsString();
+                    String field = args.get(1).getAsString();
+                    String right = args.get(2).getAsString();
+                    return new JsonPrimitive(index != null ? index.mayAlias(left, field, right)
+                            : analysis.mayAlias(left, field, right));
+                }
+                throw new IllegalArgumentException("mayAlias takes [x, y] or [x, field, y]: " + args);
+            case "pointsTo":
+                if (args.size() != 1) {
+                    throw new IllegalArgumentException("pointsTo takes [x]: " + args);
+                }
+                String variable = args.get(0).getAsString();
+                Set<Node> nodes = index != null ? index.getNodesForVariable(variable) : analysis.getNodesForVariable(variable);
+                JsonArray names = new JsonArray();
+                if (nodes != null) {
+                    List<String> sortedNames = new ArrayList<>();
+                    for (Node node : nodes) {
+                        sortedNames.add(node.name);
+                    }
+                    Collections.sort(sortedNames);
+                    sortedNames.forEach(names::add);
+                }
+                return names;
+            default:
+                throw new IllegalArgumentException("Unknown query: " + type);
+        }
+    }
+
+    private PointsToQueries getAnalysis(JsonObject query) {
+        Map<String, String> options = new TreeMap<>();
+        if (query.has("options")) {
+            for (Map.Entry<String, JsonElement> option : query.getAsJsonObject("options").entrySet()) {
+                options.put(option.getKey(), option.getValue().getAsString());
+            }
+        }
+        String method = query.has("method") ? query.get("method").getAsString() : DEFAULT_METHOD;
+        PointsToQueries analysis = session.analyze(query.get("class").getAsString(), method, options);
+        if (!indexes.containsKey(analysis)) {
+            PointsToGraph graph = AnalysisServer.getPointsToGraph(analysis);
+            indexes.put(analysis, graph != null ? new AliasIndex(graph) : null);
+        }
+        return analysis;
+    }
+
+    private static void write(Writer out, JsonObject response) throws IOException {
+        out.write(response.toString());
+        out.write('\n');
+    }
+
+    private static JsonObject ok(JsonObject query) {
+        JsonObject response = new JsonObject();
+        if (query != null && query.has("id")) {
+            response.add("id", query.get("id"));
+        }
+        response.addProperty("ok", true);
+        return response;
+    }
+
+    private static JsonObject error(JsonObject query, String message) {
+        JsonObject response = ok(query);
+        response.addProperty("ok", false);
+        response.addProperty("error", message);
+        return response;
+    }
+}
@@ -0,0 +1,27 @@
+package inge2.dataflow.targets;
+
+public class Target10 {
+    private Target10 f1;
+
+    public void entryPoint(int n) {
+        Target10 x = new Target10();
+        Target10 y = new Target10();
+        Target10 z = new Target10();
+        Target10 v = y;
+        Target10 w;
+        int i = 0;
+        x.f1 = y;
+        x.f1 = z;
+        while (i < n) {
+            w = new Target10();
+            w.f1 = x;
+            w.f1 = z;
+            i++;
+        }
+        if (n > 0) {
+            y = z;
+        }
+        y.f1 = x;
+        y.f1 = v;
+    }
+}
@@ -0,0 +1,29 @@
+package inge2.dataflow.targets;
+
+public class Target11 {
+    private static Target11 shared;
+    private Target11 f1;
+
+    public void entryPoint(Target11 p, int n) {
+        Target11[] array = new Target11[n];
+        Target11 x = new Target11();
+        Target11 y = new Target11();
+        array[0] = x;
+        array[1] = y;
+        Target11 a = array[n - 1];
+        Object o = y;
+        Target11 c = (Target11) o;
+        shared = x;
+        Target11 s = shared;
+        Target11 r = p.self();
+        x.f1 = y;
+        x.f1 = null;
+        y.f1 = r;
+        Target11 z = y;
+        z = null;
+    }
+
+    private Target11 self() {
+        return this;
+    }
+}
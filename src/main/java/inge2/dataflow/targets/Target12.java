@@ -0,0 +1,23 @@
+package inge2.dataflow.targets;
+
+public class Target12 {
+    private Target12 f1;
+
+    public void entryPoint(Target12 p, boolean c) {
+        Target12 x;
+        if (c) {
+            x = new Target12();
+        } else {
+            x = p;
+        }
+        Target12 y = c ? new Target12() : this;
+        Target12 z = new Target12();
+        Target12 v = new Target12();
+        x.f1 = z;
+        x.f1 = v;
+        y.f1 = z;
+        y.f1 = v;
+        z.f1 = x;
+        z.f1 = v;
+    }
+}
@@ -0,0 +1,27 @@
+package inge2.dataflow.targets;
+
+public class Target13 {
+    private Target13 f1;
+
+    public void entryPoint() {
+        Target13 x = new Target13();
+        Target13 y = new Target13();
+        Target13 z = new Target13();
+        Target13 a = id(y);
+        Target13 b = x.self(), c = y.self();
+        store(x, z);
+        Target13 w = x.f1;
+    }
+
+    private static Target13 id(Target13 o) {
+        return o;
+    }
+
+    private Target13 self() {
+        return this;
+    }
+
+    private static void store(Target13 o, Target13 v) {
+        o.f1 = v;
+    }
+}
@@ -0,0 +1,20 @@
+package inge2.dataflow.targets;
+
+public class Target14 {
+    private Target14 f1;
+
+    public void entryPoint(boolean c) {
+        Target14 x = new Target14();
+        Target14 w;
+        try {
+            w = new Target14();
+            w.f1 = x;
+            x = w;
+        } catch (RuntimeException e) {
+            if (c) {
+                x = null;
+            }
+            throw new IllegalStateException(x.toString());
+        }
+    }
+}
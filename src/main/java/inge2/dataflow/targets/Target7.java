@@ -0,0 +1,23 @@
+package inge2.dataflow.targets;
+
+public class Target7 {
+    private Target7 f1;
+
+    public void entryPoint(int n) {
+        Target7 x = new Target7();
+        Target7 y = x;
+        Target7 z;
+        Target7 w;
+        int i = 0;
+        while (i < n) {
+            z = new Target7();
+            z.f1 = y;
+            y = z;
+            i++;
+        }
+        w = y.f1;
+        if (n > 10) {
+            w = new Target7();
+        }
+    }
+}
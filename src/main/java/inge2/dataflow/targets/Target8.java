@@ -0,0 +1,26 @@
+package inge2.dataflow.targets;
+
+public class Target8 {
+    private Target8 f1;
+
+    public void entryPoint() {
+        Target8 x = new Target8();
+        Target8 y = new Target8();
+        Target8 z;
+        Target8 w;
+        try {
+            x.f1 = y;
+            z = new Target8();
+            x = z;
+        } catch (RuntimeException e) {
+            throw new IllegalStateException(e);
+        }
+        try {
+            w = new Target8();
+            w.f1 = x;
+            y = w;
+        } catch (RuntimeException e) {
+            y = x;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package inge2.dataflow.targets;
+
+public class Target9 {
+    private Target9 f1;
+    private Target9 f2;
+
+    public void entryPoint(int n) {
+        Target9 a = new Target9();
+        Target9 b = new Target9();
+        Target9 c = a;
+        Target9 d = b;
+        Target9 t;
+        int i = 0;
+        if (n > 0) {
+            while (i < n) {
+                t = new Target9();
+                c.f1 = t;
+                c = c.f1;
+                i++;
+            }
+        } else {
+            while (i > n) {
+                d.f2 = a;
+                d = new Target9();
+                i--;
+            }
+        }
+        a.f2 = d;
+        b = c.f1;
+    }
+}
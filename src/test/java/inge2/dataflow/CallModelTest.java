@@ -0,0 +1,91 @@
+package inge2.dataflow;
+
+import inge2.dataflow.pointstoanalysis.*;
+import org.junit.jupiter.api.Test;
+import soot.Body;
+import soot.Unit;
+import soot.jimple.Stmt;
+import soot.toolkits.graph.ExceptionalUnitGraph;
+import soot.toolkits.graph.UnitGraph;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CallModelTest {
+
+    private static final String TARGET = "inge2.dataflow.targets.Target13";
+
+    @Test
+    public void testFreshCallsAreUnsoundByDesign() {
+        Launcher.analyzeClass(TARGET);
+        PointsToAnalysis analysis = Launcher.getLastPointsToAnalysis();
+
+        // id(y) devuelve y, y store(x, z) guarda z en x.f1, pero el metodo llamado no se analiza.
+        assertFalse(analysis.mayAlias("a", "y"), "a may-alias y? NO");
+        assertFalse(analysis.mayAlias("w", "z"), "w may-alias z? NO");
+        assertNotEquals(analysis.getNodesForVariable("b"), analysis.getNodesForVariable("c"));
+    }
+
+    @Test
+    public void testConservativeCalls() {
+        Launcher.analyzeClass(TARGET, "calls:conservative");
+        PointsToAnalysis analysis = Launcher.getLastPointsToAnalysis();
+
+        assertTrue(analysis.mayAlias("a", "y"), "a may-alias y? SI");
+        assertFalse(analysis.mayAlias("a", "x"), "a may-alias x? NO");
+        assertTrue(analysis.mayAlias("x", "f1", "z"), "x.f1 may-alias z? SI");
+        assertTrue(analysis.mayAlias("w", "z"), "w may-alias z? SI");
+        assertTrue(analysis.mayAlias("b", "x"), "b may-alias x? SI");
+        assertFalse(analysis.mayAlias("b", "c"), "b may-alias c? NO");
+
+        // Los objetos que escapan no se unen de a pares: todos los ejes pasan por el nodo de una llamada.
+        for (Axis axis : analysis.getLastPointsToGraph().axis) {
+            assertTrue(axis.leftNode.name.contains("()") || axis.rightNode.name.contains("()"), axis.toString());
+        }
+    }
+
+    @Test
+    public void testCallsOnTheSameLine() {
+        UnitGraph graph = new ExceptionalUnitGraph(getBody());
+        CallSites callSites = new CallSites(graph);
+        HeapAbstraction heapAbstraction = new AllocationSiteAbstraction();
+
+        List<Node> nodes = new ArrayList<>();
+        for (Unit unit : graph.getBody().getUnits()) {
+            if (unit.toString().contains("self()")) {
+                nodes.add(heapAbstraction.getCallNode((Stmt) unit, callSites.getIndex(unit)));
+            }
+        }
+        // b = x.self(), c = y.self() estan en la linea 11.
+        assertEquals(2, nodes.size());
+        assertTrue(nodes.get(0).name.startsWith("11:self()"), nodes.get(0).name);
+        assertTrue(nodes.get(1).name.startsWith("11:self()"), nodes.get(1).name);
+        assertNotEquals(nodes.get(0), nodes.get(1));
+    }
+
+    @Test
+    public void testSameFlowsOnEveryEngine() {
+        UnitGraph graph = new ExceptionalUnitGraph(getBody());
+        PointsToConfig config = new PointsToConfig();
+        config.setCalls(CallModel.CONSERVATIVE);
+
+        PointsToAnalysis sequential = new PointsToAnalysis(graph, config);
+        ParallelPointsToAnalysis parallel = new ParallelPointsToAnalysis(graph, config);
+        IncrementalPointsToAnalysis incremental = new IncrementalPointsToAnalysis(graph, config);
+        for (Unit unit : graph) {
+            assertEquals(sequential.getFlowAfter(unit), parallel.getFlowAfter(unit), unit.toString());
+            assertEquals(sequential.getFlowAfter(unit), incremental.getFlowAfter(unit), unit.toString());
+        }
+        assertThrows(IllegalArgumentException.class, () -> new DemandDrivenPointsTo(graph, config));
+    }
+
+    /**
+     * The incremental analysis keeps the body after Soot finishes.
+     */
+    private static Body getBody() {
+        Launcher.analyzeClass(TARGET, "incremental:true");
+        return ((IncrementalPointsToAnalysis) Launcher.getLastPointsToQueries()).getBody();
+    }
+}
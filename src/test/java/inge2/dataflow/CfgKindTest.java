@@ -0,0 +1,67 @@
+package inge2.dataflow;
+
+import inge2.dataflow.pointstoanalysis.CfgKind;
+import inge2.dataflow.pointstoanalysis.IncrementalPointsToAnalysis;
+import inge2.dataflow.pointstoanalysis.PointsToAnalysis;
+import inge2.dataflow.pointstoanalysis.PointsToGraph;
+import org.junit.jupiter.api.Test;
+import soot.Body;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CfgKindTest {
+
+    private PointsToAnalysis analyze(String targetClass, CfgKind cfg) {
+        Launcher.analyzeClass(targetClass, "cfg:" + cfg.name().toLowerCase());
+        return Launcher.getLastPointsToAnalysis();
+    }
+
+    @Test
+    public void testSameResultsWithoutHandlers() {
+        for (int i = 1; i <= 7; i++) {
+            String targetClass = "inge2.dataflow.targets.Target" + i;
+            PointsToGraph exceptional = analyze(targetClass, CfgKind.EXCEPTIONAL).getLastPointsToGraph();
+            assertEquals(exceptional, analyze(targetClass, CfgKind.PRUNED).getLastPointsToGraph(), targetClass);
+            assertEquals(exceptional, analyze(targetClass, CfgKind.BRIEF).getLastPointsToGraph(), targetClass);
+        }
+    }
+
+    @Test
+    public void testPrunedKeepsHandlersThatReadTheState() {
+        PointsToAnalysis exceptional = analyze("inge2.dataflow.targets.Target8", CfgKind.EXCEPTIONAL);
+        PointsToAnalysis pruned = analyze("inge2.dataflow.targets.Target8", CfgKind.PRUNED);
+        PointsToAnalysis brief = analyze("inge2.dataflow.targets.Target8", CfgKind.BRIEF);
+
+        // The second handler reads x, so the pruned graph keeps its edges.
+        assertTrue(exceptional.mayAlias("y", "x"), "y may-alias x? SI");
+        assertTrue(pruned.mayAlias("y", "x"), "y may-alias x? SI");
+        assertFalse(brief.mayAlias("y", "x"), "y may-alias x? NO (the handler is analysed from an empty state)");
+
+        // The first handler only wraps and rethrows the exception, so its edges are dropped.
+        assertTrue(pruned.getMergeCount() < exceptional.getMergeCount());
+        assertTrue(brief.getMergeCount() < pruned.getMergeCount());
+    }
+
+    @Test
+    public void testPrunedKeepsHandlersThatReadTheStateOnSomePath() {
+        PointsToAnalysis exceptional = analyze("inge2.dataflow.targets.Target14", CfgKind.EXCEPTIONAL);
+        PointsToAnalysis pruned = analyze("inge2.dataflow.targets.Target14", CfgKind.PRUNED);
+
+        // The handler only defines x when c is true; otherwise it reads the x from before the exception.
+        assertEquals(exceptional.getLastPointsToGraph(), pruned.getLastPointsToGraph());
+        assertEquals(exceptional.getMergeCount(), pruned.getMergeCount());
+    }
+
+    @Test
+    public void testEdgeCounts() {
+        // The incremental analysis keeps the body after Soot finishes.
+        Launcher.analyzeClass("inge2.dataflow.targets.Target8", "incremental:true");
+        Body body = ((IncrementalPointsToAnalysis) Launcher.getLastPointsToQueries()).getBody();
+
+        int exceptional = CfgKind.countEdges(CfgKind.EXCEPTIONAL.build(body));
+        int pruned = CfgKind.countEdges(CfgKind.PRUNED.build(body));
+        int brief = CfgKind.countEdges(CfgKind.BRIEF.build(body));
+        assertTrue(brief < pruned, brief + " < " + pruned);
+        assertTrue(pruned < exceptional, pruned + " < " + exceptional);
+    }
+}
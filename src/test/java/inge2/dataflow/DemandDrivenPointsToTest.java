@@ -0,0 +1,87 @@
+package inge2.dataflow;
+
+import inge2.dataflow.pointstoanalysis.DemandDrivenPointsTo;
+import inge2.dataflow.pointstoanalysis.Node;
+import inge2.dataflow.pointstoanalysis.PointsToQueries;
+import org.junit.jupiter.api.Test;
+import soot.RefType;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DemandDrivenPointsToTest {
+
+    private static final String[] VARIABLES = {"a", "b", "c", "d", "e", "t", "x", "y", "z", "w", "temp"};
+
+    @Test
+    public void testSameAnswersAsForwardAnalysis() {
+        for (int i = 1; i <= 7; i++) {
+            String targetClass = "inge2.dataflow.targets.Target" + i;
+
+            Launcher.analyzeClass(targetClass, "demand-driven:true");
+            PointsToQueries demandDriven = Launcher.getLastPointsToQueries();
+            assertTrue(demandDriven instanceof DemandDrivenPointsTo);
+            List<String> demandAnswers = answerAll(demandDriven);
+
+            Launcher.analyzeClass(targetClass);
+            List<String> forwardAnswers = answerAll(Launcher.getLastPointsToQueries());
+
+            assertEquals(forwardAnswers, demandAnswers, targetClass);
+        }
+    }
+
+    @Test
+    public void testLoop() {
+        Launcher.analyzeClass("inge2.dataflow.targets.Target7", "demand-driven:true");
+        PointsToQueries pointsToQueries = Launcher.getLastPointsToQueries();
+
+        RefType target7 = RefType.v("inge2.dataflow.targets.Target7");
+        assertEquals(new HashSet<>(Arrays.asList(new Node("7", target7), new Node("13", target7))),
+                pointsToQueries.getNodesForVariable("y"));
+        assertTrue(pointsToQueries.mayAlias("y", "f1", "y"), "y.f1 may-alias y? SI");
+        assertTrue(pointsToQueries.mayAlias("w", "x"), "w may-alias x? SI");
+        assertFalse(pointsToQueries.mayAlias("x", "f1", "y"), "x.f1 may-alias y? NO");
+    }
+
+    @Test
+    public void testQueriesAreMemoized() {
+        Launcher.analyzeClass("inge2.dataflow.targets.Target5", "demand-driven:true");
+        DemandDrivenPointsTo pointsToQueries = (DemandDrivenPointsTo) Launcher.getLastPointsToQueries();
+
+        assertEquals(0, pointsToQueries.getSolvedQueryCount(), "nothing is computed before the first query");
+        assertTrue(pointsToQueries.mayAlias("t", "y"));
+        int solvedQueries = pointsToQueries.getSolvedQueryCount();
+        assertTrue(solvedQueries > 0);
+        assertTrue(pointsToQueries.mayAlias("t", "y"));
+        assertEquals(solvedQueries, pointsToQueries.getSolvedQueryCount());
+    }
+
+    private static List<String> answerAll(PointsToQueries pointsToQueries) {
+        List<String> answers = new ArrayList<>();
+        for (String left : VARIABLES) {
+            Set<Node> nodes = pointsToQueries.getNodesForVariable(left);
+            answers.add(left + " -> " + (nodes == null ? Collections.emptySet() : new TreeSet<>(toNames(nodes))));
+            if (nodes == null || nodes.isEmpty()) {
+                continue;
+            }
+            for (String right : VARIABLES) {
+                Set<Node> rightNodes = pointsToQueries.getNodesForVariable(right);
+                if (rightNodes == null || rightNodes.isEmpty()) {
+                    continue;
+                }
+                answers.add(left + " ~ " + right + ": " + pointsToQueries.mayAlias(left, right));
+                answers.add(left + ".f1 ~ " + right + ": " + pointsToQueries.mayAlias(left, "f1", right));
+            }
+        }
+        return answers;
+    }
+
+    private static Set<String> toNames(Set<Node> nodes) {
+        Set<String> names = new HashSet<>();
+        for (Node node : nodes) {
+            names.add(node.name);
+        }
+        return names;
+    }
+}
@@ -0,0 +1,110 @@
+package inge2.dataflow;
+
+import inge2.dataflow.pointstoanalysis.AllocationSiteAbstraction;
+import inge2.dataflow.pointstoanalysis.Node;
+import inge2.dataflow.pointstoanalysis.PointsToAnalysis;
+import inge2.dataflow.pointstoanalysis.PointsToGraph;
+import inge2.dataflow.pointstoanalysis.TypeAbstraction;
+import org.junit.jupiter.api.Test;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeapAbstractionTest {
+
+    @Test
+    public void testTypeAbstractionMergesAllocationSites() {
+        Launcher.analyzeClass("inge2.dataflow.targets.Target3", "heap-abstraction:type");
+        PointsToAnalysis pointsToAnalysis = Launcher.getLastPointsToAnalysis();
+        PointsToGraph pointsToGraph = pointsToAnalysis.getLastPointsToGraph();
+
+        assertEquals(1, pointsToGraph.nodes.size());
+        RefType target3 = RefType.v("inge2.dataflow.targets.Target3");
+        assertEquals(Collections.singleton(new Node("inge2.dataflow.targets.Target3", target3)),
+                pointsToGraph.getNodesForVariable("x"));
+        assertTrue(pointsToAnalysis.mayAlias("x", "y"), "x may-alias y? SI (mismo tipo)");
+        assertTrue(pointsToAnalysis.mayAlias("x", "f1", "y"), "x.f1 may-alias y? SI");
+    }
+
+    @Test
+    public void testNodesOfTheSameLineWithDifferentTypes() {
+        RefType string = RefType.v("java.lang.String");
+        RefType integer = RefType.v("java.lang.Integer");
+        AllocationSiteAbstraction allocationSites = new AllocationSiteAbstraction();
+
+        // p.ej. new Box(new Integer(1)) en la linea 7: los dos nodos se llaman "7".
+        Set<Node> nodes = new HashSet<>(Arrays.asList(new Node("7", string), new Node("7", integer)));
+        assertEquals(2, nodes.size());
+        assertTrue(nodes.stream().anyMatch(node -> allocationSites.mayHaveType(node, string)));
+        assertTrue(nodes.stream().anyMatch(node -> allocationSites.mayHaveType(node, integer)));
+        assertNotEquals(new Node("7"), new Node("7", string));
+    }
+
+    @Test
+    public void testTypeGroupsMergeSubtypes() {
+        Launcher.analyzeClass("inge2.dataflow.targets.Target6", "heap-abstraction:type", "type-groups:java.lang.Object");
+        PointsToGraph pointsToGraph = Launcher.getLastPointsToAnalysis().getLastPointsToGraph();
+
+        assertEquals(Collections.singleton(new Node("java.lang.Object", RefType.v("java.lang.Object"))), pointsToGraph.nodes);
+        assertEquals(1, pointsToGraph.axis.size());
+    }
+
+    @Test
+    public void testTypeFilterKeepsResultsOfWellTypedCode() {
+        Launcher.analyzeClass("inge2.dataflow.targets.Target6", "type-filter:true");
+        PointsToAnalysis pointsToAnalysis = Launcher.getLastPointsToAnalysis();
+
+        assertTrue(pointsToAnalysis.mayAlias("a", "c"), "a may-alias c? SI");
+        assertFalse(pointsToAnalysis.mayAlias("a", "b"), "a may-alias b? NO");
+        assertTrue(pointsToAnalysis.mayAlias("a", "f1", "e"), "a.f1 may-alias e? SI");
+    }
+
+    @Test
+    public void testMayHaveType() {
+        Launcher.analyzeClass("inge2.dataflow.targets.Target1");
+        RefType target = RefType.v("inge2.dataflow.targets.Target1");
+        RefType object = RefType.v("java.lang.Object");
+        RefType string = RefType.v("java.lang.String");
+
+        AllocationSiteAbstraction allocationSites = new AllocationSiteAbstraction();
+        assertTrue(allocationSites.mayHaveType(new Node("1", target), object));
+        assertFalse(allocationSites.mayHaveType(new Node("1", string), target));
+        assertFalse(allocationSites.mayHaveType(new Node("1", object), target));
+        assertTrue(allocationSites.mayHaveType(new Node("1"), target), "sin tipo: compatible");
+
+        // A group node may contain any subtype of its root.
+        TypeAbstraction typeGroups = new TypeAbstraction(Collections.singletonList(object));
+        assertTrue(typeGroups.mayHaveType(new Node("java.lang.Object", object), target));
+    }
+
+    @Test
+    public void testTypeGroupsWithUnrelatedInterfaces() {
+        Launcher.analyzeClass("inge2.dataflow.targets.Target1");
+        for (String className : new String[]{"java.util.Collection", "java.util.AbstractList", "java.io.Serializable", "java.lang.Number"}) {
+            Scene.v().forceResolve(className, SootClass.HIERARCHY);
+        }
+        Scene.v().releaseFastHierarchy();
+        RefType collection = RefType.v("java.util.Collection");
+        RefType abstractList = RefType.v("java.util.AbstractList");
+        RefType serializable = RefType.v("java.io.Serializable");
+        RefType string = RefType.v("java.lang.String");
+        RefType number = RefType.v("java.lang.Number");
+
+        // An ArrayList is both a Collection and Serializable.
+        TypeAbstraction collections = new TypeAbstraction(Collections.singletonList(collection));
+        assertTrue(collections.mayHaveType(new Node("java.util.Collection", collection), serializable));
+        assertTrue(collections.mayHaveType(new Node("java.util.Collection", collection), number), "una subclase de Number puede ser una Collection");
+        assertFalse(collections.mayHaveType(new Node("java.util.Collection", collection), string), "String es final");
+
+        TypeAbstraction lists = new TypeAbstraction(Collections.singletonList(abstractList));
+        assertTrue(lists.mayHaveType(new Node("java.util.AbstractList", abstractList), serializable));
+        assertFalse(lists.mayHaveType(new Node("java.util.AbstractList", abstractList), number), "dos clases sin relacion");
+    }
+}
@@ -0,0 +1,136 @@
+package inge2.dataflow.pointstoanalysis;
+
+import inge2.dataflow.Launcher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import soot.RefType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeapReachabilityTest {
+
+    private PointsToGraph graph;
+    private Node node1, node2, node3, node4;
+
+    @BeforeEach
+    void setUp() {
+        graph = new PointsToGraph();
+        node1 = new Node("1");
+        node2 = new Node("2");
+        node3 = new Node("3");
+        node4 = new Node("4");
+    }
+
+    @Test
+    @DisplayName("getReachableNodes should follow paths of any length")
+    void testReachableNodesOnChain() {
+        graph.addEdge(node1, "f", node2);
+        graph.addEdge(node2, "g", node3);
+
+        assertEquals(nodes(node2, node3), graph.getReachableNodes(node1));
+        assertEquals(nodes(node3), graph.getReachableNodes(node2));
+        assertTrue(graph.getReachableNodes(node3).isEmpty());
+    }
+
+    @Test
+    @DisplayName("getReachableNodes should only include the node itself when it is on a cycle")
+    void testReachableNodesOnCycle() {
+        graph.addEdge(node1, "f", node2);
+        graph.addEdge(node2, "f", node3);
+        graph.addEdge(node3, "f", node1);
+        graph.addEdge(node3, "f", node4);
+        graph.addEdge(node4, "f", node4);
+
+        assertEquals(nodes(node1, node2, node3, node4), graph.getReachableNodes(node2));
+        assertEquals(nodes(node4), graph.getReachableNodes(node4));
+    }
+
+    @Test
+    @DisplayName("getReachableNodes should only follow the given fields")
+    void testReachableNodesByFields() {
+        graph.addEdge(node1, "f", node2);
+        graph.addEdge(node2, "g", node3);
+        graph.addEdge(node1, "h", node4);
+
+        assertEquals(nodes(node2), graph.getReachableNodes(node1, Collections.singleton("f")));
+        assertEquals(nodes(node2, node3), graph.getReachableNodes(node1, new HashSet<>(Arrays.asList("f", "g"))));
+        assertTrue(graph.getReachableNodes(node1, Collections.singleton("other")).isEmpty());
+    }
+
+    @Test
+    @DisplayName("getReachableNodes with no fields should not share its closure with the one of every field")
+    void testNoFieldsAndAllFields() {
+        graph.addEdge(node1, "f", node2);
+        graph.addEdge(node2, "g", node3);
+
+        assertTrue(graph.getReachableNodes(node1, new HashSet<>()).isEmpty());
+        assertEquals(nodes(node2, node3), graph.getReachableNodes(node1));
+
+        PointsToGraph other = new PointsToGraph();
+        other.addEdge(node1, "f", node2);
+        other.addEdge(node2, "g", node3);
+
+        assertEquals(nodes(node2, node3), other.getReachableNodes(node1));
+        assertTrue(other.getReachableNodes(node1, Collections.emptySet()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("closure should be updated when edges are added after a query")
+    void testIncrementalUpdate() {
+        graph.addEdge(node1, "f", node2);
+        assertEquals(nodes(node2), graph.getReachableNodes(node1));
+        assertEquals(nodes(node2), graph.getReachableNodes(node1, Collections.singleton("f")));
+
+        graph.addEdge(node2, "f", node3);
+        graph.addEdge(node4, "g", node1);
+        assertEquals(nodes(node2, node3), graph.getReachableNodes(node1));
+        assertEquals(nodes(node1, node2, node3), graph.getReachableNodes(node4));
+        assertEquals(nodes(node2, node3), graph.getReachableNodes(node1, Collections.singleton("f")));
+        assertTrue(graph.getReachableNodes(node4, Collections.singleton("f")).isEmpty());
+
+        // Closing a cycle
+        graph.addEdge(node3, "f", node1);
+        assertEquals(nodes(node1, node2, node3), graph.getReachableNodes(node2));
+
+        // Union also updates the closure
+        PointsToGraph other = new PointsToGraph();
+        other.addEdge(node3, "f", node4);
+        graph.union(other);
+        assertEquals(nodes(node1, node2, node3, node4), graph.getReachableNodes(node1));
+    }
+
+    @Test
+    @DisplayName("closure should be recomputed when the axis set is modified directly")
+    void testDirectModification() {
+        graph.addEdge(node1, "f", node2);
+        assertEquals(nodes(node2), graph.getReachableNodes(node1));
+
+        graph.axis.add(new Axis(node2, "f", node3));
+        assertEquals(nodes(node2, node3), graph.getReachableNodes(node1));
+
+        graph.clear();
+        assertTrue(graph.getReachableNodes(node1).isEmpty());
+    }
+
+    @Test
+    @DisplayName("getReachableNodes should handle the cyclic heap of Target5")
+    void testTarget5() {
+        Launcher.analyzeClass("inge2.dataflow.targets.Target5");
+        PointsToAnalysis pointsToAnalysis = Launcher.getLastPointsToAnalysis();
+
+        RefType target5 = RefType.v("inge2.dataflow.targets.Target5");
+        Set<Node> expected = nodes(new Node("7", target5), new Node("8", target5), new Node("9", target5));
+        assertEquals(expected, pointsToAnalysis.getReachableNodes("x"));
+        assertEquals(expected, pointsToAnalysis.getLastPointsToGraph().getReachableNodes(new Node("8", target5)));
+    }
+
+    private static Set<Node> nodes(Node... nodes) {
+        return new HashSet<>(Arrays.asList(nodes));
+    }
+}
@@ -0,0 +1,110 @@
+package inge2.dataflow;
+
+import inge2.dataflow.pointstoanalysis.IncrementalPointsToAnalysis;
+import inge2.dataflow.pointstoanalysis.PointsToAnalysis;
+import inge2.dataflow.pointstoanalysis.PointsToGraph;
+import org.junit.jupiter.api.Test;
+import soot.Body;
+import soot.Local;
+import soot.Unit;
+import soot.jimple.AssignStmt;
+import soot.jimple.InstanceFieldRef;
+import soot.jimple.Jimple;
+import soot.toolkits.graph.ExceptionalUnitGraph;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IncrementalPointsToAnalysisTest {
+
+    @Test
+    public void testInitialAnalysis() {
+        IncrementalPointsToAnalysis incremental = analyze("inge2.dataflow.targets.Target6");
+
+        assertEquals(fromScratch(incremental.getBody()), incremental.getLastPointsToGraph());
+        assertTrue(incremental.mayAlias("a", "c"), "a may-alias c? SI");
+        assertFalse(incremental.mayAlias("a", "f1", "b"), "a.f1 may-alias b? NO");
+    }
+
+    @Test
+    public void testRemoveStoreInLoop() {
+        IncrementalPointsToAnalysis incremental = analyze("inge2.dataflow.targets.Target7");
+        assertTrue(incremental.mayAlias("y", "f1", "y"));
+
+        Body body = incremental.getBody();
+        body.getUnits().remove(findUnit(body, "z.<inge2.dataflow.targets.Target7: inge2.dataflow.targets.Target7 f1> = y"));
+        incremental.update();
+
+        assertEquals(fromScratch(body), incremental.getLastPointsToGraph());
+        assertFalse(incremental.mayAlias("y", "f1", "y"), "the edges of the removed store are retracted");
+        assertTrue(incremental.getLastPointsToGraph().axis.isEmpty());
+    }
+
+    @Test
+    public void testEditOnlyAnalysesDependentUnits() {
+        IncrementalPointsToAnalysis incremental = analyze("inge2.dataflow.targets.Target5");
+        int fullAnalysis = incremental.getLastFlowThroughCount();
+        assertFalse(incremental.mayAlias("t", "x"));
+
+        // Replace "t = t.f1" (the last one) by "t = x".
+        Body body = incremental.getBody();
+        Unit lastLoad = null;
+        for (Unit unit : body.getUnits()) {
+            if (unit.toString().startsWith("t = t.")) {
+                lastLoad = unit;
+            }
+        }
+        Local x = findLocal(body, "x");
+        ((AssignStmt) lastLoad).setRightOp(x);
+        incremental.update();
+
+        assertEquals(fromScratch(body), incremental.getLastPointsToGraph());
+        assertTrue(incremental.mayAlias("t", "x"));
+        assertTrue(incremental.getLastFlowThroughCount() < fullAnalysis / 2,
+                incremental.getLastFlowThroughCount() + " of " + fullAnalysis);
+    }
+
+    @Test
+    public void testInsertStore() {
+        IncrementalPointsToAnalysis incremental = analyze("inge2.dataflow.targets.Target3");
+        assertFalse(incremental.mayAlias("y", "f1", "x"));
+
+        // Insert "y.f1 = x" after "x.f1 = y".
+        Body body = incremental.getBody();
+        AssignStmt store = (AssignStmt) findUnit(body, "x.<inge2.dataflow.targets.Target3: inge2.dataflow.targets.Target3 f1> = y");
+        InstanceFieldRef fieldRef = (InstanceFieldRef) store.getLeftOp();
+        Local x = findLocal(body, "x");
+        Local y = findLocal(body, "y");
+        body.getUnits().insertAfter(Jimple.v().newAssignStmt(Jimple.v().newInstanceFieldRef(y, fieldRef.getFieldRef()), x), store);
+        incremental.update();
+
+        assertEquals(fromScratch(body), incremental.getLastPointsToGraph());
+        assertTrue(incremental.mayAlias("y", "f1", "x"));
+    }
+
+    private static IncrementalPointsToAnalysis analyze(String targetClass) {
+        Launcher.analyzeClass(targetClass, "incremental:true");
+        return (IncrementalPointsToAnalysis) Launcher.getLastPointsToQueries();
+    }
+
+    private static PointsToGraph fromScratch(Body body) {
+        return new PointsToAnalysis(new ExceptionalUnitGraph(body)).getLastPointsToGraph();
+    }
+
+    private static Unit findUnit(Body body, String text) {
+        for (Unit unit : body.getUnits()) {
+            if (unit.toString().equals(text)) {
+                return unit;
+            }
+        }
+        throw new AssertionError("No unit " + text);
+    }
+
+    private static Local findLocal(Body body, String name) {
+        for (Local local : body.getLocals()) {
+            if (local.getName().equals(name)) {
+                return local;
+            }
+        }
+        throw new AssertionError("No local " + name);
+    }
+}
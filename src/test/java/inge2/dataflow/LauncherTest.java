@@ -0,0 +1,60 @@
+package inge2.dataflow;
+
+import inge2.dataflow.pointstoanalysis.Axis;
+import inge2.dataflow.pointstoanalysis.PointsToAnalysis;
+import inge2.dataflow.pointstoanalysis.PointsToQueries;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LauncherTest {
+
+    @Test
+    public void testMethodFilter() {
+        Launcher.analyzeClass("inge2.dataflow.targets.Target5", "methods:.*");
+
+        Set<String> expected = new HashSet<>(Arrays.asList(
+                "<inge2.dataflow.targets.Target5: void entryPoint()>",
+                "<inge2.dataflow.targets.Target5: void <init>()>"
+        ));
+        assertEquals(expected, Launcher.getPointsToResults().keySet());
+    }
+
+    @Test
+    public void testMethodFilterBySignature() {
+        Launcher.analyzeClass("inge2.dataflow.targets.Target7", "methods:<.*: void <init>\\(\\)>");
+
+        assertEquals(Collections.singleton("<inge2.dataflow.targets.Target7: void <init>()>"),
+                Launcher.getPointsToResults().keySet());
+    }
+
+    @Test
+    public void testParallelBodyPacks() {
+        List<String> sootArgs = new ArrayList<>();
+        for (int i = 1; i <= 7; i++) {
+            sootArgs.add("inge2.dataflow.targets.Target" + i);
+        }
+        sootArgs.addAll(Arrays.asList(
+                "-cp", System.getProperty("sootClassPath"),
+                "-f", "n",
+                "-num-threads", "4",
+                "-p", Launcher.POINTS_TO_SOOT_PHASE_NAME, "on"
+        ));
+        sootArgs.addAll(Arrays.asList(Launcher.JIMPLE_BODY_OPTIONS));
+        Launcher.main(sootArgs.toArray(new String[0]));
+
+        Map<String, PointsToQueries> results = Launcher.getPointsToResults();
+        assertEquals(7, results.size());
+
+        PointsToAnalysis target5 = (PointsToAnalysis) Launcher.getPointsToQueries("<inge2.dataflow.targets.Target5: void entryPoint()>");
+        Set<String> calculatedAxis = target5.getLastPointsToGraph().axis.stream().map(Axis::toString).collect(Collectors.toSet());
+        assertEquals(new HashSet<>(Arrays.asList("((7), f1, (8))", "((8), f1, (9))", "((9), f1, (7))")), calculatedAxis);
+
+        PointsToQueries target6 = Launcher.getPointsToQueries("<inge2.dataflow.targets.Target6: void entryPoint()>");
+        assertTrue(target6.mayAlias("a", "c"), "a may-alias c? SI");
+        assertFalse(target6.mayAlias("a", "f1", "b"), "a.f1 may-alias b? NO");
+    }
+}
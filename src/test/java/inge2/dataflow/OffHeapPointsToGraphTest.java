@@ -0,0 +1,219 @@
+package inge2.dataflow.pointstoanalysis;
+
+import inge2.dataflow.Launcher;
+import org.junit.jupiter.api.Test;
+import soot.RefType;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapPointsToGraphTest {
+
+    private final Node node1 = new Node("1");
+    private final Node node2 = new Node("2");
+    private final Node node3 = new Node("3");
+
+    @Test
+    void testSameContentsAsHeapGraph() {
+        PointsToGraph heap = new PointsToGraph();
+        PointsToGraph offHeap = new PointsToGraph(GraphStorage.OFF_HEAP);
+        for (PointsToGraph graph : Arrays.asList(heap, offHeap)) {
+            graph.setNodesForVariable("x", new HashSet<>(Arrays.asList(node1, node2)));
+            graph.setNodesForVariable("y", new HashSet<>(Collections.singletonList(node3)));
+            graph.mapping.put("z", null);
+            graph.addEdge(node1, "f", node2);
+            graph.addEdge(node1, "f", node3);
+            graph.addEdge(node2, "g", node1);
+            graph.addEdge(node1, "f", node2);
+        }
+
+        assertEquals(heap, offHeap);
+        assertEquals(offHeap, heap);
+        assertEquals(heap.hashCode(), offHeap.hashCode());
+        assertEquals(3, offHeap.axis.size());
+        assertTrue(offHeap.axis.contains(new Axis(node2, "g", node1)));
+        assertFalse(offHeap.axis.contains(new Axis(node2, "f", node1)));
+        assertEquals(new HashSet<>(Arrays.asList(node2, node3)), offHeap.getReachableNodesByField(node1, "f"));
+        assertEquals(new HashSet<>(Arrays.asList(node1, node2)), offHeap.getNodesForVariable("x"));
+        assertTrue(offHeap.mapping.containsKey("z"));
+        assertNull(offHeap.getNodesForVariable("z"));
+        assertNull(offHeap.getNodesForVariable("w"));
+        assertEquals(new HashSet<>(Arrays.asList(node1, node2, node3)), offHeap.getReachableNodes(node1));
+
+        offHeap.free();
+    }
+
+    @Test
+    void testReassignAndRemove() {
+        PointsToGraph graph = new PointsToGraph(GraphStorage.OFF_HEAP);
+        graph.setNodesForVariable("x", new HashSet<>(Collections.singletonList(node1)));
+        graph.setNodesForVariable("x", graph.getNodesForVariable("x"));
+        graph.setNodesForVariable("x", new HashSet<>(Arrays.asList(node2, node3)));
+        assertEquals(new HashSet<>(Arrays.asList(node2, node3)), graph.getNodesForVariable("x"));
+        assertEquals(1, graph.mapping.size());
+
+        graph.addEdge(node1, "f", node2);
+        graph.addEdge(node2, "f", node3);
+        assertTrue(graph.axis.remove(new Axis(node1, "f", node2)));
+        assertFalse(graph.axis.remove(new Axis(node1, "f", node2)));
+        graph.axis.removeIf(axis -> axis.leftNode.equals(node2));
+        assertTrue(graph.axis.isEmpty());
+        graph.addEdge(node1, "f", node2);
+        assertEquals(Collections.singleton(new Axis(node1, "f", node2)), graph.axis);
+
+        graph.free();
+    }
+
+    @Test
+    void testLargeGraph() {
+        PointsToGraph heap = new PointsToGraph();
+        PointsToGraph offHeap = new PointsToGraph(GraphStorage.OFF_HEAP);
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            nodes.add(new Node("large" + i));
+        }
+        for (int i = 0; i < 200; i++) {
+            for (int j = 0; j < 50; j++) {
+                heap.addEdge(nodes.get(i), "f" + (j % 3), nodes.get((i + j) % 200));
+                offHeap.addEdge(nodes.get(i), "f" + (j % 3), nodes.get((i + j) % 200));
+            }
+            Set<Node> pointsTo = new HashSet<>(nodes.subList(i, Math.min(200, i + 20)));
+            heap.setNodesForVariable("v" + (i % 40), pointsTo);
+            offHeap.setNodesForVariable("v" + (i % 40), pointsTo);
+        }
+        assertEquals(10000, offHeap.axis.size());
+        assertEquals(heap, offHeap);
+
+        PointsToGraph copy = new PointsToGraph(GraphStorage.OFF_HEAP);
+        copy.copy(offHeap);
+        assertEquals(heap, copy);
+        copy.union(heap);
+        assertEquals(heap, copy);
+
+        offHeap.free();
+        copy.free();
+    }
+
+    @Test
+    void testTargetsAfterRemovals() {
+        PointsToGraph heap = new PointsToGraph();
+        PointsToGraph offHeap = new PointsToGraph(GraphStorage.OFF_HEAP);
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            nodes.add(new Node("targets" + i));
+        }
+        for (PointsToGraph graph : Arrays.asList(heap, offHeap)) {
+            for (int i = 0; i < 60; i++) {
+                for (int j = 0; j < 30; j++) {
+                    graph.addEdge(nodes.get(i), "f" + (j % 2), nodes.get((i * 7 + j) % 60));
+                }
+            }
+            graph.axis.removeIf(axis -> axis.rightNode.name.hashCode() % 3 == 0);
+        }
+
+        for (Node node : nodes) {
+            for (String field : Arrays.asList("f0", "f1", "g")) {
+                assertEquals(heap.getReachableNodesByField(node, field), offHeap.getReachableNodesByField(node, field));
+            }
+        }
+        offHeap.free();
+    }
+
+    @Test
+    void testNodesKeepTheirType() {
+        Node string = new Node("typed", RefType.v("java.lang.String"));
+        Node integer = new Node("typed", RefType.v("java.lang.Integer"));
+        PointsToGraph first = new PointsToGraph(GraphStorage.OFF_HEAP);
+        PointsToGraph second = new PointsToGraph(GraphStorage.OFF_HEAP);
+        first.setNodesForVariable("x", Collections.singleton(string));
+        first.addEdge(node1, "f", string);
+        second.setNodesForVariable("x", Collections.singleton(integer));
+        second.addEdge(node1, "f", integer);
+
+        assertSame(string.type, first.getNodesForVariable("x").iterator().next().type);
+        assertSame(integer.type, second.getNodesForVariable("x").iterator().next().type);
+        assertSame(string.type, first.getReachableNodesByField(node1, "f").iterator().next().type);
+        assertSame(integer.type, second.getReachableNodesByField(node1, "f").iterator().next().type);
+        assertTrue(second.axis.contains(new Axis(node1, "f", integer)));
+
+        first.free();
+        second.free();
+    }
+
+    @Test
+    void testSameNodeIdentityAsHeapGraph() {
+        Node typed = new Node("7", RefType.v("java.lang.String"));
+        Node otherType = new Node("7", RefType.v("java.lang.Integer"));
+        Node untyped = new Node("7");
+        PointsToGraph heap = new PointsToGraph();
+        PointsToGraph offHeap = new PointsToGraph(GraphStorage.OFF_HEAP);
+        for (PointsToGraph graph : Arrays.asList(heap, offHeap)) {
+            graph.addEdge(typed, "f", node2);
+            graph.addEdge(otherType, "f", node3);
+            graph.setNodesForVariable("x", new HashSet<>(Arrays.asList(typed, otherType)));
+        }
+
+        for (Node node : Arrays.asList(typed, otherType, untyped)) {
+            assertEquals(heap.getReachableNodesByField(node, "f"), offHeap.getReachableNodesByField(node, "f"));
+            assertEquals(heap.axis.contains(new Axis(node, "f", node2)), offHeap.axis.contains(new Axis(node, "f", node2)));
+        }
+        assertEquals(heap.axis.size(), offHeap.axis.size());
+        assertEquals(heap.getNodesForVariable("x"), offHeap.getNodesForVariable("x"));
+        assertEquals(heap, offHeap);
+        offHeap.free();
+    }
+
+    @Test
+    void testPoolIsBounded() {
+        List<ByteBuffer> buffers = new ArrayList<>();
+        long bytes = 0;
+        while (bytes <= 2 * OffHeapBuffers.MAX_POOLED_BYTES) {
+            ByteBuffer buffer = OffHeapBuffers.allocate(1 << 20);
+            buffers.add(buffer);
+            bytes += buffer.capacity();
+        }
+        buffers.forEach(OffHeapBuffers::release);
+        assertTrue(OffHeapBuffers.getPooledBytes() <= OffHeapBuffers.MAX_POOLED_BYTES);
+    }
+
+    @Test
+    void testFreedGraphCannotBeUsed() {
+        PointsToGraph graph = new PointsToGraph(GraphStorage.OFF_HEAP);
+        graph.addEdge(node1, "f", node2);
+        graph.free();
+        graph.free();
+
+        assertThrows(IllegalStateException.class, () -> graph.addEdge(node1, "f", node3));
+        assertThrows(IllegalStateException.class, () -> graph.getNodesForVariable("x"));
+    }
+
+    @Test
+    void testSameResultsAsHeapStorage() {
+        for (int i = 1; i <= 9; i++) {
+            String targetClass = "inge2.dataflow.targets.Target" + i;
+            Launcher.analyzeClass(targetClass);
+            PointsToGraph heap = Launcher.getLastPointsToAnalysis().getLastPointsToGraph();
+
+            Launcher.analyzeClass(targetClass, "storage:off-heap");
+            PointsToGraph offHeap = Launcher.getLastPointsToAnalysis().getLastPointsToGraph();
+            assertEquals(GraphStorage.OFF_HEAP, offHeap.getStorage());
+            assertEquals(heap, offHeap, targetClass);
+        }
+    }
+
+    @Test
+    void testParallelAndIncrementalAnalyses() {
+        for (String targetClass : Arrays.asList("inge2.dataflow.targets.Target7", "inge2.dataflow.targets.Target9")) {
+            Launcher.analyzeClass(targetClass);
+            PointsToGraph heap = Launcher.getLastPointsToAnalysis().getLastPointsToGraph();
+
+            Launcher.analyzeClass(targetClass, "parallel:true", "storage:off-heap");
+            assertEquals(heap, ((ParallelPointsToAnalysis) Launcher.getLastPointsToQueries()).getLastPointsToGraph());
+
+            Launcher.analyzeClass(targetClass, "incremental:true", "storage:off-heap");
+            assertEquals(heap, ((IncrementalPointsToAnalysis) Launcher.getLastPointsToQueries()).getLastPointsToGraph());
+        }
+    }
+}
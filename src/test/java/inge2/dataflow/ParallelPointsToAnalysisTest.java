@@ -0,0 +1,57 @@
+package inge2.dataflow;
+
+import inge2.dataflow.pointstoanalysis.*;
+import org.junit.jupiter.api.Test;
+import soot.Body;
+import soot.Unit;
+import soot.toolkits.graph.ExceptionalUnitGraph;
+import soot.toolkits.graph.UnitGraph;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParallelPointsToAnalysisTest {
+
+    @Test
+    public void testSameFlowsAsSequentialAnalysis() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int i = 1; i <= 9; i++) {
+                String targetClass = "inge2.dataflow.targets.Target" + i;
+                UnitGraph graph = new ExceptionalUnitGraph(getBody(targetClass));
+
+                PointsToAnalysis sequential = new PointsToAnalysis(graph);
+                ParallelPointsToAnalysis parallel = new ParallelPointsToAnalysis(graph, new PointsToConfig(), pool);
+                for (Unit unit : graph) {
+                    assertEquals(sequential.getFlowAfter(unit), parallel.getFlowAfter(unit), targetClass + ": " + unit);
+                }
+                assertEquals(sequential.getLastPointsToGraph(), parallel.getLastPointsToGraph(), targetClass);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testIndependentBranches() {
+        Launcher.analyzeClass("inge2.dataflow.targets.Target9", "parallel:true");
+        PointsToQueries pointsToQueries = Launcher.getLastPointsToQueries();
+        assertTrue(pointsToQueries instanceof ParallelPointsToAnalysis);
+        ParallelPointsToAnalysis parallel = (ParallelPointsToAnalysis) pointsToQueries;
+
+        // Before the branches, the two loops and the join point.
+        assertEquals(4, parallel.getRegionCount());
+        assertTrue(parallel.mayAlias("b", "c"), "b may-alias c? SI");
+        assertTrue(parallel.mayAlias("a", "f2", "d"), "a.f2 may-alias d? SI");
+        assertFalse(parallel.mayAlias("a", "f1", "d"), "a.f1 may-alias d? NO");
+    }
+
+    /**
+     * The incremental analysis keeps the body after Soot finishes.
+     */
+    private static Body getBody(String targetClass) {
+        Launcher.analyzeClass(targetClass, "incremental:true");
+        return ((IncrementalPointsToAnalysis) Launcher.getLastPointsToQueries()).getBody();
+    }
+}
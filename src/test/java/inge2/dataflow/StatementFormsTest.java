@@ -0,0 +1,100 @@
+package inge2.dataflow;
+
+import inge2.dataflow.pointstoanalysis.*;
+import org.junit.jupiter.api.Test;
+import soot.Body;
+import soot.toolkits.graph.ExceptionalUnitGraph;
+import soot.toolkits.graph.UnitGraph;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatementFormsTest {
+
+    private static final String TARGET = "inge2.dataflow.targets.Target11";
+    private static final String SHARED = "<inge2.dataflow.targets.Target11: inge2.dataflow.targets.Target11 shared>";
+
+    @Test
+    public void testArrays() {
+        Launcher.analyzeClass(TARGET);
+        PointsToAnalysis analysis = Launcher.getLastPointsToAnalysis();
+
+        // Los elementos del arreglo no se distinguen por indice.
+        assertTrue(analysis.mayAlias("a", "x"), "a may-alias x? SI");
+        assertTrue(analysis.mayAlias("a", "y"), "a may-alias y? SI");
+        assertTrue(analysis.mayAlias("array", PointsToGraph.ARRAY_FIELD, "y"), "array[] may-alias y? SI");
+        assertFalse(analysis.mayAlias("a", "r"), "a may-alias r? NO");
+    }
+
+    @Test
+    public void testCastsAndNull() {
+        Launcher.analyzeClass(TARGET);
+        PointsToAnalysis analysis = Launcher.getLastPointsToAnalysis();
+
+        assertTrue(analysis.mayAlias("c", "y"), "c may-alias y? SI");
+        assertTrue(analysis.getNodesForVariable("z").isEmpty());
+        // Sin strong updates, x.f1 = null no borra el eje agregado por x.f1 = y.
+        assertTrue(analysis.mayAlias("x", "f1", "y"), "x.f1 may-alias y? SI");
+    }
+
+    @Test
+    public void testStaticFieldsAsGlobalRoots() {
+        Launcher.analyzeClass(TARGET);
+        PointsToAnalysis analysis = Launcher.getLastPointsToAnalysis();
+
+        assertTrue(analysis.mayAlias(SHARED, "x"), "shared may-alias x? SI");
+        assertTrue(analysis.mayAlias("s", "x"), "s may-alias x? SI");
+        // s tambien apunta a lo que tenia el campo al empezar el metodo.
+        assertEquals(2, analysis.getNodesForVariable("s").size());
+        assertFalse(analysis.mayAlias("s", "y"), "s may-alias y? NO");
+    }
+
+    @Test
+    public void testCalls() {
+        Launcher.analyzeClass(TARGET);
+        PointsToAnalysis analysis = Launcher.getLastPointsToAnalysis();
+
+        // Un nodo por call site, que no es alias de ningun objeto alocado en el metodo.
+        assertEquals(1, analysis.getNodesForVariable("r").size());
+        assertFalse(analysis.mayAlias("r", "x"), "r may-alias x? NO");
+        assertTrue(analysis.mayAlias("y", "f1", "r"), "y.f1 may-alias r? SI");
+        assertNull(analysis.getNodesForVariable("n"));
+    }
+
+    @Test
+    public void testStrongNullStore() {
+        Launcher.analyzeClass(TARGET, "strong-updates:true");
+        PointsToAnalysis analysis = Launcher.getLastPointsToAnalysis();
+
+        assertFalse(analysis.mayAlias("x", "f1", "y"), "x.f1 may-alias y? NO");
+    }
+
+    @Test
+    public void testDemandDrivenMatchesForwardAnalysis() {
+        Launcher.analyzeClass(TARGET, "incremental:true");
+        Body body = ((IncrementalPointsToAnalysis) Launcher.getLastPointsToQueries()).getBody();
+        UnitGraph graph = new ExceptionalUnitGraph(body);
+        for (String[] option : new String[][]{{"type-filter", "false"}, {"type-filter", "true"}, {"strong-updates", "true"}}) {
+            String options = option[0] + ":" + option[1];
+            PointsToConfig config = PointsToConfig.fromPhaseOptions(Collections.singletonMap(option[0], option[1]));
+            PointsToAnalysis forward = new PointsToAnalysis(graph, config);
+            DemandDrivenPointsTo demandDriven = new DemandDrivenPointsTo(graph, config);
+            // Las variables que el analisis asigna; PointsToAnalysis no responde sobre las demas.
+            Set<String> variables = new HashSet<>(forward.getLastPointsToGraph().mapping.keySet());
+            assertTrue(variables.contains(SHARED));
+            for (String variable : variables) {
+                assertEquals(forward.getNodesForVariable(variable), demandDriven.getNodesForVariable(variable),
+                        options + ": " + variable);
+                for (String other : variables) {
+                    for (String field : new String[]{"f1", PointsToGraph.ARRAY_FIELD}) {
+                        assertEquals(forward.mayAlias(variable, field, other), demandDriven.mayAlias(variable, field, other),
+                                options + ": " + variable + "." + field + " may-alias " + other);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package inge2.dataflow;
+
+import inge2.dataflow.pointstoanalysis.*;
+import org.junit.jupiter.api.Test;
+import soot.Body;
+import soot.Unit;
+import soot.toolkits.graph.ExceptionalUnitGraph;
+import soot.toolkits.graph.UnitGraph;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StrongUpdatesTest {
+
+    private static final String TARGET = "inge2.dataflow.targets.Target10";
+
+    @Test
+    public void testWeakUpdatesByDefault() {
+        Launcher.analyzeClass(TARGET);
+        PointsToAnalysis analysis = Launcher.getLastPointsToAnalysis();
+
+        assertEquals(0, analysis.getStrongUpdateCount());
+        assertTrue(analysis.mayAlias("x", "f1", "v"), "x.f1 may-alias v? SI");
+        assertTrue(analysis.mayAlias("x", "f1", "z"), "x.f1 may-alias z? SI");
+    }
+
+    @Test
+    public void testStrongUpdates() {
+        Launcher.analyzeClass(TARGET, "strong-updates:true");
+        PointsToAnalysis analysis = Launcher.getLastPointsToAnalysis();
+
+        // x.f1 = y y x.f1 = z; los stores sobre w (alocado en el ciclo) y sobre y (dos nodos) son debiles.
+        assertEquals(2, analysis.getStrongUpdateCount());
+        assertFalse(analysis.mayAlias("x", "f1", "v"), "x.f1 may-alias v? NO");
+        assertTrue(analysis.mayAlias("x", "f1", "z"), "x.f1 may-alias z? SI");
+        assertTrue(analysis.mayAlias("w", "f1", "x"), "w.f1 may-alias x? SI");
+        assertTrue(analysis.mayAlias("y", "f1", "x"), "y.f1 may-alias x? SI");
+        assertTrue(analysis.mayAlias("y", "f1", "v"), "y.f1 may-alias v? SI");
+    }
+
+    @Test
+    public void testWeakUpdatesOnParametersAndThis() {
+        Launcher.analyzeClass("inge2.dataflow.targets.Target12", "strong-updates:true");
+        PointsToAnalysis analysis = Launcher.getLastPointsToAnalysis();
+
+        // x puede ser el parametro p e y puede ser this: solo los stores sobre z son fuertes.
+        assertEquals(2, analysis.getStrongUpdateCount());
+        assertTrue(analysis.mayAlias("x", "f1", "z"), "x.f1 may-alias z? SI");
+        assertTrue(analysis.mayAlias("y", "f1", "z"), "y.f1 may-alias z? SI");
+        assertFalse(analysis.mayAlias("z", "f1", "x"), "z.f1 may-alias x? NO");
+
+        PointsToConfig config = new PointsToConfig();
+        config.setStrongUpdates(true);
+        DemandDrivenPointsTo demandDriven = new DemandDrivenPointsTo(new ExceptionalUnitGraph(getBody("Target12")), config);
+        assertTrue(demandDriven.mayAlias("x", "f1", "z"), "x.f1 may-alias z? SI");
+        assertTrue(demandDriven.mayAlias("y", "f1", "z"), "y.f1 may-alias z? SI");
+        assertFalse(demandDriven.mayAlias("z", "f1", "x"), "z.f1 may-alias x? NO");
+    }
+
+    @Test
+    public void testSingleObjectNodes() {
+        UnitGraph graph = new ExceptionalUnitGraph(getBody());
+        StrongUpdates strongUpdates = new StrongUpdates(graph, new AllocationSiteAbstraction());
+
+        // x, y y z; w se aloca en el ciclo.
+        assertEquals(3, strongUpdates.getSingleObjectNodes().size());
+    }
+
+    @Test
+    public void testSameFlowsOnEveryEngine() {
+        UnitGraph graph = new ExceptionalUnitGraph(getBody());
+        PointsToConfig config = new PointsToConfig();
+        config.setStrongUpdates(true);
+
+        PointsToAnalysis sequential = new PointsToAnalysis(graph, config);
+        ParallelPointsToAnalysis parallel = new ParallelPointsToAnalysis(graph, config);
+        IncrementalPointsToAnalysis incremental = new IncrementalPointsToAnalysis(graph, config);
+        for (Unit unit : graph) {
+            assertEquals(sequential.getFlowAfter(unit), parallel.getFlowAfter(unit), unit.toString());
+            assertEquals(sequential.getFlowAfter(unit), incremental.getFlowAfter(unit), unit.toString());
+        }
+        assertEquals(2, parallel.getStrongUpdateCount());
+        assertEquals(2, incremental.getStrongUpdateCount());
+
+        DemandDrivenPointsTo demandDriven = new DemandDrivenPointsTo(graph, config);
+        for (String[] query : new String[][]{{"x", "v"}, {"x", "z"}, {"w", "x"}, {"y", "x"}, {"y", "v"}}) {
+            assertEquals(sequential.mayAlias(query[0], "f1", query[1]), demandDriven.mayAlias(query[0], "f1", query[1]),
+                    query[0] + ".f1 may-alias " + query[1]);
+        }
+    }
+
+    /**
+     * The incremental analysis keeps the body after Soot finishes.
+     */
+    private static Body getBody() {
+        return getBody("Target10");
+    }
+
+    private static Body getBody(String target) {
+        Launcher.analyzeClass("inge2.dataflow.targets." + target, "incremental:true");
+        return ((IncrementalPointsToAnalysis) Launcher.getLastPointsToQueries()).getBody();
+    }
+}
@@ -0,0 +1,150 @@
+package inge2.dataflow.performance;
+
+import soot.*;
+import soot.jimple.*;
+import soot.tagkit.LineNumberTag;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates large Jimple bodies for the performance tests, without class files.
+ *
+ * A body is a random mix of the statements the analysis models (allocations, copies, loads and stores over a few
+ * fields) nested in loops and if/else branches, so the fixpoint has to merge and iterate. The same seed always
+ * generates the same body, and each allocation gets its own line number, so the nodes of
+ * {@link inge2.dataflow.pointstoanalysis.AllocationSiteAbstraction} are stable.
+ */
+public class GeneratedBodies {
+
+    private static final String PACKAGE_NAME = "inge2.dataflow.generated";
+
+    private final Random random;
+    private final int locals;
+    private final int fields;
+
+    private RefType type;
+    private final List<Local> variables = new ArrayList<>();
+    private final List<SootField> sootFields = new ArrayList<>();
+    private Local condition;
+    private int line;
+    private int statements;
+
+    /**
+     * @param seed the seed of the random choices.
+     * @param locals how many reference locals the body uses.
+     * @param fields how many fields the generated class has.
+     */
+    public GeneratedBodies(long seed, int locals, int fields) {
+        this.random = new Random(seed);
+        this.locals = locals;
+        this.fields = fields;
+    }
+
+    /**
+     * Generates a body with about <code>size</code> modelled statements and loops nested up to <code>depth</code>.
+     * The body belongs to a new class, named after the method. Soot must be set up (e.g. by a previous
+     * {@link inge2.dataflow.Launcher} run).
+     */
+    public Body generate(String methodName, int size, int depth) {
+        SootClass sootClass = new SootClass(PACKAGE_NAME + "." + methodName, Modifier.PUBLIC);
+        type = sootClass.getType();
+        variables.clear();
+        sootFields.clear();
+        for (int f = 0; f < fields; f++) {
+            SootField field = new SootField("f" + f, type);
+            sootClass.addField(field);
+            sootFields.add(field);
+        }
+        SootMethod method = new SootMethod(methodName, Collections.singletonList(IntType.v()), VoidType.v(), Modifier.PUBLIC);
+        sootClass.addMethod(method);
+
+        JimpleBody body = Jimple.v().newBody(method);
+        method.setActiveBody(body);
+        for (int i = 0; i < locals; i++) {
+            Local local = Jimple.v().newLocal("v" + i, type);
+            body.getLocals().add(local);
+            variables.add(local);
+        }
+        condition = Jimple.v().newLocal("n", IntType.v());
+        body.getLocals().add(condition);
+
+        UnitPatchingChain units = body.getUnits();
+        units.add(Jimple.v().newIdentityStmt(condition, Jimple.v().newParameterRef(IntType.v(), 0)));
+        // Every local starts pointing to an object, so loads and stores have something to work on.
+        for (Local variable : variables) {
+            units.add(newAllocation(variable));
+        }
+        statements = 0;
+        while (statements < size) {
+            block(units, depth, size);
+        }
+        units.add(Jimple.v().newReturnVoidStmt());
+        return body;
+    }
+
+    private void block(UnitPatchingChain units, int depth, int size) {
+        int choice = random.nextInt(20);
+        if (depth > 0 && choice == 0) {
+            // while (n != 0) { ... }
+            Unit head = Jimple.v().newNopStmt();
+            Unit exit = Jimple.v().newNopStmt();
+            units.add(head);
+            units.add(Jimple.v().newIfStmt(Jimple.v().newEqExpr(condition, IntConstant.v(0)), exit));
+            for (int i = random.nextInt(4) + 1; i > 0 && statements < size; i--) {
+                block(units, depth - 1, size);
+            }
+            units.add(Jimple.v().newGotoStmt(head));
+            units.add(exit);
+        } else if (depth > 0 && choice == 1) {
+            // if (n == 0) { ... } else { ... }
+            Unit elseBranch = Jimple.v().newNopStmt();
+            Unit join = Jimple.v().newNopStmt();
+            units.add(Jimple.v().newIfStmt(Jimple.v().newNeExpr(condition, IntConstant.v(0)), elseBranch));
+            block(units, depth - 1, size);
+            units.add(Jimple.v().newGotoStmt(join));
+            units.add(elseBranch);
+            block(units, depth - 1, size);
+            units.add(join);
+        } else {
+            units.add(statement());
+            statements++;
+        }
+    }
+
+    private Unit statement() {
+        Local left = randomVariable();
+        Local right = randomVariable();
+        switch (random.nextInt(10)) {
+            case 0:
+            case 1:
+            case 2:
+                return newAllocation(left);
+            case 3:
+            case 4:
+            case 5:
+                return Jimple.v().newAssignStmt(left, right);
+            case 6:
+            case 7:
+                return Jimple.v().newAssignStmt(Jimple.v().newInstanceFieldRef(left, randomField().makeRef()), right);
+            default:
+                return Jimple.v().newAssignStmt(left, Jimple.v().newInstanceFieldRef(right, randomField().makeRef()));
+        }
+    }
+
+    private Unit newAllocation(Local variable) {
+        Unit allocation = Jimple.v().newAssignStmt(variable, Jimple.v().newNewExpr(type));
+        allocation.addTag(new LineNumberTag(++line));
+        return allocation;
+    }
+
+    private Local randomVariable() {
+        return variables.get(random.nextInt(variables.size()));
+    }
+
+    private SootField randomField() {
+        return sootFields.get(random.nextInt(sootFields.size()));
+    }
+}
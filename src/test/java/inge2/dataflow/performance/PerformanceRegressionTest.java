@@ -0,0 +1,324 @@
+package inge2.dataflow.performance;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import inge2.dataflow.Launcher;
+import inge2.dataflow.pointstoanalysis.*;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import soot.Body;
+import soot.Unit;
+import soot.toolkits.graph.ExceptionalUnitGraph;
+import soot.toolkits.graph.UnitGraph;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Performance regression gate: runs {@link PointsToAnalysis} on every target and on large generated bodies, some of
+ * them with other options (off-heap storage, strong updates, conservative calls), and compares each result with its
+ * golden snapshot and each cost with its budget.
+ *
+ * The snapshots and budgets are recorded in the file of the system property "performanceBudgets". A case fails if
+ * its final graph differs from the snapshot, if the fixpoint takes more flow-throughs or reaches a larger graph than
+ * recorded, or if its normalised time is over budget. The time is normalised by the time of a fixed workload of JDK
+ * collections, so that the budgets do not depend on the speed of the machine; the time budgets are recorded with a
+ * margin, and with a floor for the runs that are too short to be timed reliably. With the system property
+ * "recordPerformance" the file is rewritten with the current results instead.
+ *
+ * Run with <code>./gradlew performanceTest</code> (and <code>-PrecordPerformance</code> to record).
+ */
+@Tag("performance")
+public class PerformanceRegressionTest {
+
+    private static final String DEFAULT_BUDGETS = "src/test/resources/performance-budgets.json";
+
+    private static final String TARGETS = "inge2.dataflow.targets.Target";
+
+    /**
+     * Margen del presupuesto de tiempo sobre el tiempo normalizado medido al grabar.
+     */
+    private static final double TIME_SLACK = 3.0;
+
+    /**
+     * Presupuesto minimo de tiempo normalizado: las corridas mas cortas dependen mas del ruido que del analisis.
+     */
+    private static final double MIN_TIME_BUDGET = 0.05;
+
+    private static final long MIN_BATCH_NANOS = 20_000_000;
+    private static final int BATCHES = 3;
+
+    private static volatile long blackhole;
+
+    @Test
+    public void testAgainstBudgets() throws IOException {
+        Path budgetsFile = Paths.get(System.getProperty("performanceBudgets", DEFAULT_BUDGETS));
+        boolean record = Boolean.getBoolean("recordPerformance");
+
+        Map<String, UnitGraph> graphs = new LinkedHashMap<>();
+        for (int i = 1; targetExists(i); i++) {
+            graphs.put("Target" + i, new ExceptionalUnitGraph(getBody(TARGETS + i)));
+        }
+        // Nested loops, a longer method with single loops and a long method without loops.
+        graphs.put("Generated500", new ExceptionalUnitGraph(new GeneratedBodies(1, 40, 4).generate("generated500", 500, 2)));
+        graphs.put("Generated800", new ExceptionalUnitGraph(new GeneratedBodies(2, 50, 6).generate("generated800", 800, 1)));
+        graphs.put("Generated3000", new ExceptionalUnitGraph(new GeneratedBodies(3, 100, 8).generate("generated3000", 3000, 0)));
+
+        // Every graph with the default options, plus the options that change the fixpoint or its storage. A case is
+        // named after its graph and its phase options. The generated bodies reassign their locals, so strong updates
+        // only change the result of Target12; on Generated800 they measure the cost of finding the allocated locals.
+        Map<String, PointsToConfig> cases = new LinkedHashMap<>();
+        for (String name : graphs.keySet()) {
+            cases.put(name, new PointsToConfig());
+        }
+        for (String name : Arrays.asList("Generated500 storage:off-heap", "Generated800 strong-updates:true",
+                "Target12 strong-updates:true", "Target13 calls:conservative")) {
+            cases.put(name, getConfig(name));
+        }
+
+        // The analysis is compiled by the JIT before any case is timed, so the first cases are not slower.
+        for (Map.Entry<String, PointsToConfig> testCase : cases.entrySet()) {
+            run(getGraph(graphs, testCase.getKey()), testCase.getValue()).freeFlows();
+        }
+        double calibrationNanos = time(PerformanceRegressionTest::calibrationWorkload);
+        Map<String, Measurement> measurements = new LinkedHashMap<>();
+        for (Map.Entry<String, PointsToConfig> testCase : cases.entrySet()) {
+            measurements.put(testCase.getKey(), measure(getGraph(graphs, testCase.getKey()), testCase.getValue(), calibrationNanos));
+        }
+
+        if (record) {
+            JsonObject budgets = new JsonObject();
+            for (Map.Entry<String, Measurement> measurement : measurements.entrySet()) {
+                budgets.add(measurement.getKey(), measurement.getValue().toBudget());
+            }
+            try (Writer writer = Files.newBufferedWriter(budgetsFile, StandardCharsets.UTF_8)) {
+                Gson gson = new GsonBuilder().setPrettyPrinting().create();
+                writer.write(gson.toJson(budgets));
+                writer.write('\n');
+            }
+            return;
+        }
+
+        assertTrue(Files.exists(budgetsFile), "No budgets at " + budgetsFile.toAbsolutePath() + ", record them with -PrecordPerformance");
+        JsonObject budgets;
+        try (Reader reader = Files.newBufferedReader(budgetsFile, StandardCharsets.UTF_8)) {
+            budgets = new Gson().fromJson(reader, JsonObject.class);
+        }
+        List<String> failures = new ArrayList<>();
+        for (Map.Entry<String, Measurement> measurement : measurements.entrySet()) {
+            String name = measurement.getKey();
+            if (!budgets.has(name)) {
+                failures.add(name + ": no budget recorded");
+            } else {
+                measurement.getValue().check(name, budgets.getAsJsonObject(name), failures);
+            }
+        }
+        assertTrue(failures.isEmpty(), String.join("\n", failures));
+    }
+
+    private static Measurement measure(UnitGraph graph, PointsToConfig config, double calibrationNanos) {
+        Measurement measurement = measureResult(graph, config);
+        measurement.normalisedTime = time(() -> {
+            PointsToAnalysis analysis = run(graph, config);
+            if (config.getStorage() == GraphStorage.OFF_HEAP) {
+                // The off-heap graphs go back to the pool, as Launcher does, instead of waiting for the collector.
+                analysis.freeFlows();
+            }
+        }) / calibrationNanos;
+        return measurement;
+    }
+
+    private static PointsToAnalysis run(UnitGraph graph, PointsToConfig config) {
+        PointsToAnalysis analysis = new PointsToAnalysis(graph, config);
+        blackhole += analysis.getFlowThroughCount();
+        return analysis;
+    }
+
+    private static Measurement measureResult(UnitGraph graph, PointsToConfig config) {
+        PointsToAnalysis analysis = new PointsToAnalysis(graph, config);
+        Measurement measurement = new Measurement();
+        PointsToGraph last = analysis.getLastPointsToGraph();
+        measurement.nodes = last.nodes.size();
+        measurement.edges = last.axis.size();
+        measurement.digest = digest(last);
+        measurement.flowThroughs = analysis.getFlowThroughCount();
+        for (Unit unit : graph) {
+            measurement.peakGraphSize = Math.max(measurement.peakGraphSize, size(analysis.getFlowAfter(unit)));
+        }
+        analysis.freeFlows();
+        return measurement;
+    }
+
+    /**
+     * Returns true if the target with the given number exists. The targets are numbered from 1 without gaps.
+     */
+    private static boolean targetExists(int number) {
+        try {
+            Class.forName(TARGETS + number, false, PerformanceRegressionTest.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * The graph of a case: the first word of its name.
+     */
+    private static UnitGraph getGraph(Map<String, UnitGraph> graphs, String caseName) {
+        return graphs.get(caseName.split(" ")[0]);
+    }
+
+    /**
+     * The configuration of a case: the phase options that follow the name of its graph.
+     */
+    private static PointsToConfig getConfig(String caseName) {
+        Map<String, String> options = new HashMap<>();
+        String[] words = caseName.split(" ");
+        for (int i = 1; i < words.length; i++) {
+            String[] option = words[i].split(":", 2);
+            options.put(option[0], option[1]);
+        }
+        return PointsToConfig.fromPhaseOptions(options);
+    }
+
+    /**
+     * Points-to facts of a graph: its edges plus the nodes of each variable.
+     */
+    private static int size(PointsToGraph graph) {
+        int size = graph.axis.size();
+        for (Set<Node> nodes : graph.mapping.values()) {
+            size += nodes != null ? nodes.size() : 0;
+        }
+        return size;
+    }
+
+    /**
+     * SHA-256 of the sorted variables and edges of the graph.
+     */
+    private static String digest(PointsToGraph graph) {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Set<Node>> variable : graph.mapping.entrySet()) {
+            List<String> names = new ArrayList<>();
+            if (variable.getValue() != null) {
+                for (Node node : variable.getValue()) {
+                    names.add(node.name);
+                }
+            }
+            Collections.sort(names);
+            lines.add(variable.getKey() + " -> " + names);
+        }
+        for (Axis axis : graph.axis) {
+            lines.add(axis.leftNode.name + "." + axis.fieldName + " -> " + axis.rightNode.name);
+        }
+        Collections.sort(lines);
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            StringBuilder hex = new StringBuilder();
+            for (byte b : sha.digest(String.join("\n", lines).getBytes(StandardCharsets.UTF_8))) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Nanoseconds per run of <code>task</code>: the best of a few batches, each one long enough to be measured.
+     * The garbage of earlier runs is collected before each batch, so that it is not charged to the batch.
+     */
+    private static double time(Runnable task) {
+        long start = System.nanoTime();
+        task.run();
+        long firstRun = Math.max(1, System.nanoTime() - start);
+        long repetitions = Math.max(1, MIN_BATCH_NANOS / firstRun);
+
+        double best = Double.MAX_VALUE;
+        for (int batch = 0; batch < BATCHES; batch++) {
+            System.gc();
+            start = System.nanoTime();
+            for (long i = 0; i < repetitions; i++) {
+                task.run();
+            }
+            best = Math.min(best, (double) (System.nanoTime() - start) / repetitions);
+        }
+        return best;
+    }
+
+    /**
+     * Fixed work with the same kind of collections the analysis uses: building, copying and merging sets.
+     */
+    private static void calibrationWorkload() {
+        Random random = new Random(0);
+        Map<Integer, Set<Integer>> sets = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            sets.computeIfAbsent(random.nextInt(200), key -> new HashSet<>()).add(random.nextInt(1_000));
+        }
+        long sum = 0;
+        Set<Integer> previous = new HashSet<>();
+        for (Set<Integer> set : sets.values()) {
+            Set<Integer> merged = new HashSet<>(set);
+            merged.addAll(previous);
+            sum += merged.size();
+            previous = set;
+        }
+        blackhole += sum;
+    }
+
+    /**
+     * The incremental analysis keeps the body after Soot finishes.
+     */
+    private static Body getBody(String targetClass) {
+        Launcher.analyzeClass(targetClass, "incremental:true");
+        return ((IncrementalPointsToAnalysis) Launcher.getLastPointsToQueries()).getBody();
+    }
+
+    private static final class Measurement {
+        private int nodes;
+        private int edges;
+        private String digest;
+        private int flowThroughs;
+        private int peakGraphSize;
+        private double normalisedTime;
+
+        private JsonObject toBudget() {
+            JsonObject budget = new JsonObject();
+            budget.addProperty("nodes", nodes);
+            budget.addProperty("edges", edges);
+            budget.addProperty("digest", digest);
+            budget.addProperty("maxFlowThroughs", flowThroughs);
+            budget.addProperty("maxPeakGraphSize", peakGraphSize);
+            budget.addProperty("maxNormalisedTime", Double.parseDouble(String.format(Locale.ROOT, "%.3g",
+                    Math.max(MIN_TIME_BUDGET, normalisedTime * TIME_SLACK))));
+            return budget;
+        }
+
+        private void check(String name, JsonObject budget, List<String> failures) {
+            if (!digest.equals(budget.get("digest").getAsString())) {
+                failures.add(String.format("%s: the graph differs from the golden snapshot (%d nodes and %d edges, expected %d and %d)",
+                        name, nodes, edges, budget.get("nodes").getAsInt(), budget.get("edges").getAsInt()));
+            }
+            if (flowThroughs > budget.get("maxFlowThroughs").getAsInt()) {
+                failures.add(String.format("%s: %d flow-throughs, budget %d", name, flowThroughs, budget.get("maxFlowThroughs").getAsInt()));
+            }
+            if (peakGraphSize > budget.get("maxPeakGraphSize").getAsInt()) {
+                failures.add(String.format("%s: peak graph size %d, budget %d", name, peakGraphSize, budget.get("maxPeakGraphSize").getAsInt()));
+            }
+            if (normalisedTime > budget.get("maxNormalisedTime").getAsDouble()) {
+                failures.add(String.format(Locale.ROOT, "%s: normalised time %.3g, budget %.3g", name, normalisedTime,
+                        budget.get("maxNormalisedTime").getAsDouble()));
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package inge2.dataflow.server;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import inge2.dataflow.pointstoanalysis.PointsToQueries;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AnalysisServerTest {
+
+    private AnalysisSession session;
+
+    @BeforeEach
+    void setUp() {
+        session = new AnalysisSession(System.getProperty("sootClassPath"));
+    }
+
+    @Test
+    public void testMayAlias() {
+        AnalysisServer server = new AnalysisServer(session, 1, 1);
+        JsonObject response = server.handle(request("{\"id\": 7, \"type\": \"mayAlias\", \"class\": \"inge2.dataflow.targets.Target5\", " +
+                "\"queries\": [[\"t\", \"x\"], [\"t\", \"y\"], [\"x\", \"f1\", \"y\"], [\"z\", \"f1\", \"y\"]]}"));
+
+        assertTrue(response.get("ok").getAsBoolean(), response.toString());
+        assertEquals(7, response.get("id").getAsInt());
+        assertEquals(json("[false, true, true, false]"), response.get("answers"));
+    }
+
+    @Test
+    public void testDumpUsesOptions() {
+        AnalysisServer server = new AnalysisServer(session, 1, 1);
+        JsonObject response = server.handle(request("{\"type\": \"dump\", \"class\": \"inge2.dataflow.targets.Target3\", " +
+                "\"method\": \"entryPoint\", \"options\": {\"heap-abstraction\": \"type\"}}"));
+
+        JsonObject graph = response.getAsJsonObject("graph");
+        assertEquals(json("[\"inge2.dataflow.targets.Target3\"]"), graph.get("nodes"));
+        assertEquals(1, graph.getAsJsonArray("edges").size());
+        assertEquals(graph.get("nodes"), graph.getAsJsonObject("mapping").get("x"));
+    }
+
+    @Test
+    public void testErrors() {
+        AnalysisServer server = new AnalysisServer(session, 1, 1);
+
+        assertFalse(server.handle(request("{\"type\": \"unknown\"}")).get("ok").getAsBoolean());
+        assertFalse(server.handle(request("{\"type\": \"mayAlias\", \"class\": \"inge2.dataflow.targets.Target5\"}")).get("ok").getAsBoolean());
+        assertThrows(IllegalArgumentException.class,
+                () -> server.handle(request("{\"type\": \"analyze\", \"class\": \"inge2.dataflow.targets.Target5\", \"method\": \"missing\"}")));
+    }
+
+    @Test
+    public void testServeConcurrentRequests() throws Exception {
+        StringBuilder input = new StringBuilder();
+        for (int i = 1; i <= 6; i++) {
+            input.append("{\"id\": ").append(i).append(", \"type\": \"analyze\", \"class\": \"inge2.dataflow.targets.Target")
+                    .append(i).append("\"}\n");
+        }
+        input.append("not json\n");
+        input.append("{\"type\": \"shutdown\"}\n");
+        input.append("{\"id\": 99, \"type\": \"stats\"}\n");
+
+        StringWriter output = new StringWriter();
+        new AnalysisServer(session, 4, 16).serve(new BufferedReader(new StringReader(input.toString())), output);
+
+        Map<Integer, JsonObject> responses = new HashMap<>();
+        int errors = 0;
+        for (String line : output.toString().split("\n")) {
+            JsonObject response = request(line).getAsJsonObject();
+            if (response.has("id")) {
+                responses.put(response.get("id").getAsInt(), response);
+            } else {
+                errors++;
+            }
+        }
+        assertEquals(1, errors, "the invalid line is reported");
+        assertEquals(6, responses.size(), "requests after shutdown are not served");
+        for (JsonObject response : responses.values()) {
+            assertTrue(response.get("ok").getAsBoolean(), response.toString());
+            assertTrue(response.has("queueMillis"));
+            assertTrue(response.has("serviceMillis"));
+        }
+        assertEquals(3, responses.get(5).get("nodes").getAsInt());
+        assertEquals(6, session.getAnalysisCount());
+    }
+
+    @Test
+    public void testConcurrentRequestsForTheSameMethodAnalyseItOnce() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<PointsToQueries>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String target = "inge2.dataflow.targets.Target" + (i % 2 == 0 ? 5 : 3);
+                futures.add(pool.submit(() -> session.analyze(target, "entryPoint", Collections.emptyMap())));
+            }
+            Set<PointsToQueries> analyses = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Future<PointsToQueries> future : futures) {
+                analyses.add(future.get());
+            }
+            assertEquals(2, analyses.size());
+            assertEquals(2, session.getAnalysisCount());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailedAnalysesAreNotCached() {
+        Map<String, String> options = Collections.emptyMap();
+        assertThrows(IllegalArgumentException.class, () -> session.analyze("inge2.dataflow.targets.Target5", "missing", options));
+        assertThrows(IllegalArgumentException.class, () -> session.analyze("inge2.dataflow.targets.Target5", "missing", options));
+        assertEquals(0, session.getAnalysisCount());
+    }
+
+    @Test
+    public void testMainRejectsAFlagWithoutValue() {
+        assertThrows(IllegalArgumentException.class, () -> AnalysisServer.main(new String[]{"-threads"}));
+        assertThrows(IllegalArgumentException.class, () -> BatchQueries.main(new String[]{"-cp", "classes", "-o"}));
+    }
+
+    private static JsonObject request(String json) {
+        return json(json).getAsJsonObject();
+    }
+
+    private static JsonElement json(String json) {
+        return JsonParser.parseString(json);
+    }
+}
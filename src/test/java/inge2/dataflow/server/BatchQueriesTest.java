@@ -0,0 +1,68 @@
+package inge2.dataflow.server;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchQueriesTest {
+
+    @Test
+    public void testQueriesAreGroupedByClass() throws Exception {
+        String input = String.join("\n",
+                "{\"id\": 1, \"class\": \"inge2.dataflow.targets.Target5\", \"query\": \"mayAlias\", \"args\": [\"t\", \"x\"]}",
+                "{\"id\": 2, \"class\": \"inge2.dataflow.targets.Target3\", \"options\": {\"heap-abstraction\": \"type\"}, " +
+                        "\"query\": \"pointsTo\", \"args\": [\"x\"]}",
+                "{\"id\": 3, \"class\": \"inge2.dataflow.targets.Target5\", \"query\": \"mayAlias\", \"args\": [\"t\", \"y\"]}",
+                "not json",
+                "{\"id\": 4, \"class\": \"inge2.dataflow.targets.Target5\", \"method\": \"entryPoint\", \"query\": \"mayAlias\", " +
+                        "\"args\": [\"x\", \"f1\", \"y\"]}",
+                "{\"id\": 5, \"class\": \"inge2.dataflow.targets.Target5\", \"query\": \"mayAlias\", \"args\": [\"z\", \"f1\", \"y\"]}",
+                "{\"id\": 6, \"class\": \"inge2.dataflow.targets.Target5\", \"query\": \"pointsTo\", \"args\": [\"missing\"]}",
+                "{\"id\": 7, \"class\": \"inge2.dataflow.targets.Target5\", \"query\": \"mayAlias\", \"args\": [\"x\"]}",
+                "{\"id\": 8, \"class\": \"inge2.dataflow.targets.Target5\", \"method\": \"missing\", \"query\": \"pointsTo\", \"args\": [\"x\"]}"
+        );
+
+        AnalysisSession session = new AnalysisSession(System.getProperty("sootClassPath"));
+        StringWriter output = new StringWriter();
+        new BatchQueries(session).run(new BufferedReader(new StringReader(input)), output);
+
+        List<JsonObject> responses = new ArrayList<>();
+        for (String line : output.toString().split("\n")) {
+            responses.add(JsonParser.parseString(line).getAsJsonObject());
+        }
+        assertEquals(9, responses.size());
+        assertFalse(responses.get(0).has("id"), "the invalid line is reported first");
+
+        List<Integer> ids = new ArrayList<>();
+        for (JsonObject response : responses.subList(1, responses.size())) {
+            ids.add(response.get("id").getAsInt());
+        }
+        assertEquals(Arrays.asList(1, 3, 4, 5, 6, 7, 8, 2), ids, "the queries of Target5 are answered together");
+
+        assertEquals(json("false"), responses.get(1).get("answer"));
+        assertEquals(json("true"), responses.get(2).get("answer"));
+        assertEquals(json("true"), responses.get(3).get("answer"));
+        assertEquals(json("false"), responses.get(4).get("answer"));
+        assertEquals(json("[]"), responses.get(5).get("answer"));
+        assertFalse(responses.get(6).get("ok").getAsBoolean(), "mayAlias needs two or three arguments");
+        assertFalse(responses.get(7).get("ok").getAsBoolean(), "the method does not exist");
+        assertEquals(json("[\"inge2.dataflow.targets.Target3\"]"), responses.get(8).get("answer"));
+        assertTrue(responses.get(1).has("micros"));
+
+        assertEquals(2, session.getAnalysisCount(), "each method is analysed once");
+    }
+
+    private static JsonElement json(String json) {
+        return JsonParser.parseString(json);
+    }
+}